@@ -0,0 +1,344 @@
+package com.example.dkovalev.waveproject.Assets;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Process-wide cache of container artworks, decoded off the main thread at the height they are drawn at.
+ * <br/>Artworks are cached by resource id, so standard and custom containers of {@link ContainerRegistry}
+ * share them. The full, empty and fill variants of a container are decoded together, so switching between them
+ * never waits for a decode. Bitmaps are evicted in least recently used order when the cache grows over
+ * its maximum size or when the system is low on memory.
+ * <br/>The variants of the container last passed to {@link #load} are pinned: they are never evicted
+ * for size, so the cache exceeds its maximum size when they do not fit in it, e.g. with three ARGB variants
+ * of a full screen height. Once the UI is hidden only they are kept, so coming back shows the container
+ * right away. They are still evicted when the system is low on memory.
+ */
+public class ContainerArtworkCache implements ComponentCallbacks2 {
+    public static final int DEFAULT_MAX_SIZE = 4 * 1024 * 1024;
+
+    public enum Variant {
+        FULL, EMPTY, FILL;
+
+        public int getIconResId(ContainerDescriptor descriptor) {
+            switch (this) {
+                case EMPTY:
+                    return descriptor.getEmptyIconResId();
+                case FILL:
+                    return descriptor.getFillIconResId();
+                default:
+                    return descriptor.getFullIconResId();
+            }
+        }
+    }
+
+    /**
+     * Asynchronous load of an artwork, see {@link #load}.
+     */
+    public abstract static class Request {
+        final ContainerDescriptor descriptor;
+        final Variant variant;
+        final int height;
+        private volatile boolean cancelled;
+
+        public Request(ContainerDescriptor descriptor, Variant variant, int height) {
+            this.descriptor = descriptor;
+            this.variant = variant;
+            this.height = height;
+        }
+
+        /**
+         * Must be called on the main thread. {@link #onArtworkLoaded} is not called afterwards.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Called on the main thread, unless cancelled.
+         *
+         * @param artwork Null if the resource could not be decoded.
+         */
+        public abstract void onArtworkLoaded(Bitmap artwork);
+    }
+
+    private static ContainerArtworkCache instance;
+
+    // decodes artworks off the main thread, one container at a time
+    private static final Executor worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "ContainerArtworkWorker");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final Resources resources;
+    // in access order, eldest first
+    private final LinkedHashMap<Key, Bitmap> bitmaps = new LinkedHashMap<>(16, 0.75f, true);
+    private int maxSize = DEFAULT_MAX_SIZE;
+    private int size;
+    // container whose variants are not evicted for size, null for none
+    private ContainerDescriptor pinnedDescriptor;
+    private int pinnedHeight;
+
+    private ContainerArtworkCache(Context context) {
+        resources = context.getResources();
+    }
+
+    /**
+     * @return the cache of the process, listening to memory trims of the application.
+     */
+    public static synchronized ContainerArtworkCache getInstance(Context context) {
+        if (instance == null) {
+            Context application = context.getApplicationContext();
+            instance = new ContainerArtworkCache(application);
+            application.registerComponentCallbacks(instance);
+        }
+        return instance;
+    }
+
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @param maxSize In bytes. Default to be 4 MB.
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    /**
+     * @return artwork decoded at <code>height</code> pixels, its width following the aspect ratio,
+     * or null without decoding it.
+     */
+    public synchronized Bitmap get(ContainerDescriptor descriptor, Variant variant, int height) {
+        return bitmaps.get(new Key(variant.getIconResId(descriptor), height));
+    }
+
+    /**
+     * Decode every variant of <code>descriptor</code> at <code>height</code> pixels in background,
+     * unless they are cached already.
+     */
+    public void preload(final ContainerDescriptor descriptor, final int height) {
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Variant variant : Variant.values()) {
+                    decode(descriptor, variant, height);
+                }
+            }
+        });
+    }
+
+    /**
+     * Deliver the artwork of <code>request</code>, right away when it is cached, otherwise once
+     * every variant of its container is decoded in background, unless the request is cancelled meanwhile.
+     * <br/>Pins the container, see {@link ContainerArtworkCache}. Must be called on the main thread.
+     */
+    public void load(final Request request) {
+        Bitmap artwork;
+        synchronized (this) {
+            pinnedDescriptor = request.descriptor;
+            pinnedHeight = request.height;
+            artwork = bitmaps.get(new Key(request.variant.getIconResId(request.descriptor), request.height));
+        }
+        if (artwork != null) {
+            request.onArtworkLoaded(artwork);
+            return;
+        }
+
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (request.isCancelled()) {
+                    return;
+                }
+                final Bitmap artwork = decode(request.descriptor, request.variant, request.height);
+                for (Variant other : Variant.values()) {
+                    if (other != request.variant) {
+                        decode(request.descriptor, other, request.height);
+                    }
+                }
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!request.isCancelled()) {
+                            request.onArtworkLoaded(artwork);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Evict every artwork, including the pinned ones.
+     */
+    public synchronized void evictAll() {
+        pinnedDescriptor = null;
+        trimToSize(0);
+    }
+
+    /**
+     * @return the cached artwork, or the one decoded now. Called on the worker thread.
+     */
+    private Bitmap decode(ContainerDescriptor descriptor, Variant variant, int height) {
+        Key key = new Key(variant.getIconResId(descriptor), height);
+        synchronized (this) {
+            Bitmap artwork = bitmaps.get(key);
+            if (artwork != null) {
+                return artwork;
+            }
+        }
+
+        Bitmap artwork = decodeResource(key.resId, height);
+        if (artwork == null) {
+            return null;
+        }
+        synchronized (this) {
+            Bitmap previous = bitmaps.put(key, artwork);
+            if (previous != null) {
+                size -= previous.getByteCount();
+            }
+            size += artwork.getByteCount();
+            trimToSize(maxSize);
+        }
+        return artwork;
+    }
+
+    /**
+     * Decode the pixels of the resource, without density scaling, subsampled to the smallest power of two
+     * staying over <code>height</code>, then scale them to exactly <code>height</code>.
+     */
+    private Bitmap decodeResource(int resId, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false;
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0 || height <= 0) {
+            return null;
+        }
+        int width = Math.max(1, Math.round(options.outWidth * (float) height / options.outHeight));
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = 1;
+        while (options.outHeight / (options.inSampleSize * 2) >= height) {
+            options.inSampleSize *= 2;
+        }
+        Bitmap decoded = BitmapFactory.decodeResource(resources, resId, options);
+        if (decoded == null || (decoded.getWidth() == width && decoded.getHeight() == height)) {
+            return decoded;
+        }
+
+        Bitmap scaled = Bitmap.createScaledBitmap(decoded, width, height, true);
+        if (scaled != decoded) {
+            decoded.recycle();
+        }
+        return scaled;
+    }
+
+    private void trimToSize(int maxSize) {
+        Iterator<Map.Entry<Key, Bitmap>> iterator = bitmaps.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            Map.Entry<Key, Bitmap> entry = iterator.next();
+            if (isPinned(entry.getKey())) {
+                continue;
+            }
+            // views may still draw an evicted bitmap, leave it to the garbage collector
+            size -= entry.getValue().getByteCount();
+            iterator.remove();
+        }
+    }
+
+    private boolean isPinned(Key key) {
+        if (pinnedDescriptor == null || key.height != pinnedHeight) {
+            return false;
+        }
+        for (Variant variant : Variant.values()) {
+            if (variant.getIconResId(pinnedDescriptor) == key.resId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_COMPLETE) {
+            evictAll();
+        } else if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            synchronized (this) {
+                trimToSize(0);
+            }
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            synchronized (this) {
+                trimToSize(maxSize / 2);
+            }
+        }
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    @Override
+    public void onLowMemory() {
+        evictAll();
+    }
+
+    private static final class Key {
+        final int resId;
+        final int height;
+
+        Key(int resId, int height) {
+            this.resId = resId;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return resId == key.resId && height == key.height;
+        }
+
+        @Override
+        public int hashCode() {
+            return resId * 31 + height;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.dkovalev.waveproject.Assets;
+
+import com.gelitenight.waveview.library.ShapeOutline;
+
+/**
+ * Immutable description of a water container: its artworks, the content area within them and its outline.
+ * <br/>Standard containers are described once from {@link WaterContainerDataModel.WaterContainerIcons},
+ * custom ones are registered in {@link ContainerRegistry}.
+ */
+public final class ContainerDescriptor {
+    public static final int NO_DATABASE_ID = -1;
+
+    private final String key;
+    private final int databaseId;
+    private final WaterContainerDataModel.WaterContainerIcons icons;
+    private final int fullIconResId;
+    private final int emptyIconResId;
+    private final int fillIconResId;
+    private final float originalImgHeight;
+    private final float topContentOffset;
+    private final float bottomContentOffset;
+    private final ShapeOutline shape;
+
+    /**
+     * Describe a custom container.
+     *
+     * @param key        Unique among the registered containers.
+     * @param databaseId {@link #NO_DATABASE_ID} if the container is not stored.
+     * @param shape      Outline of the container, null to draw a square.
+     */
+    public ContainerDescriptor(String key, int databaseId,
+                               int fullIconResId, int emptyIconResId, int fillIconResId,
+                               float originalImgHeight, float topContentOffset, float bottomContentOffset,
+                               ShapeOutline shape) {
+        this(key, databaseId, null, fullIconResId, emptyIconResId, fillIconResId,
+                originalImgHeight, topContentOffset, bottomContentOffset, shape);
+    }
+
+    ContainerDescriptor(String key, int databaseId, WaterContainerDataModel.WaterContainerIcons icons,
+                        int fullIconResId, int emptyIconResId, int fillIconResId,
+                        float originalImgHeight, float topContentOffset, float bottomContentOffset,
+                        ShapeOutline shape) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must not be null");
+        }
+        this.key = key;
+        this.databaseId = databaseId;
+        this.icons = icons;
+        this.fullIconResId = fullIconResId;
+        this.emptyIconResId = emptyIconResId;
+        this.fillIconResId = fillIconResId;
+        this.originalImgHeight = originalImgHeight;
+        this.topContentOffset = topContentOffset;
+        this.bottomContentOffset = bottomContentOffset;
+        this.shape = shape;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getDatabaseId() {
+        return databaseId;
+    }
+
+    /**
+     * @return the standard container described, null for a custom one.
+     */
+    public WaterContainerDataModel.WaterContainerIcons getIcons() {
+        return icons;
+    }
+
+    public int getFullIconResId() {
+        return fullIconResId;
+    }
+
+    public int getEmptyIconResId() {
+        return emptyIconResId;
+    }
+
+    public int getFillIconResId() {
+        return fillIconResId;
+    }
+
+    public float getOriginalImgHeight() {
+        return originalImgHeight;
+    }
+
+    public float getTopContentOffset() {
+        return topContentOffset;
+    }
+
+    public float getBottomContentOffset() {
+        return bottomContentOffset;
+    }
+
+    public ShapeOutline getShape() {
+        return shape;
+    }
+
+    @Override
+    public String toString() {
+        return "ContainerDescriptor{" +
+                "key='" + key + '\'' +
+                ", databaseId=" + databaseId +
+                '}';
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.dkovalev.waveproject.Assets;
+
+import com.gelitenight.waveview.library.ShapeOutline;
+import com.gelitenight.waveview.library.ShapeOutlines;
+
+import java.util.HashMap;
+
+/**
+ * Process-wide registry of container descriptors, looked up by full artwork resource id, database id or key.
+ * <br/>Every lookup takes constant time and allocates nothing, so list adapters may call them on every bind,
+ * with thousands of custom containers registered. The standard containers are always registered.
+ * <p>
+ * Full artworks and database ids identify one container each, registering a second container with either
+ * fails. Empty and fill artworks are not indexed, as the lookups by icon id always matched the full artwork only.
+ */
+public final class ContainerRegistry {
+    private static final ContainerRegistry instance = new ContainerRegistry();
+
+    private final IntObjectMap<ContainerDescriptor> byResId = new IntObjectMap<>();
+    private final IntObjectMap<ContainerDescriptor> byDatabaseId = new IntObjectMap<>();
+    private final HashMap<String, ContainerDescriptor> byKey = new HashMap<>();
+
+    private ContainerRegistry() {
+        for (WaterContainerDataModel.WaterContainerIcons icons : WaterContainerDataModel.WaterContainerIcons.values()) {
+            // variants are paired by name, not by declaration order
+            register(new ContainerDescriptor(icons.name(), ContainerDescriptor.NO_DATABASE_ID, icons,
+                    icons.getIconResId(),
+                    WaterContainerDataModel.WaterContainerEmptyIcons.valueOf(icons.name()).getIconResId(),
+                    WaterContainerDataModel.WaterContainerFillIcons.valueOf(icons.name()).getIconResId(),
+                    icons.getOriginalImgHeight(), icons.getTopContentOffset(), icons.getBottomContentOffset(),
+                    getStandardShape(icons)));
+        }
+    }
+
+    public static ContainerRegistry getInstance() {
+        return instance;
+    }
+
+    private static ShapeOutline getStandardShape(WaterContainerDataModel.WaterContainerIcons icons) {
+        switch (icons) {
+            case GLASS:
+                return ShapeOutlines.GLASS;
+            case DROP:
+                return ShapeOutlines.DROP;
+            case BOTTLE:
+                return ShapeOutlines.BOTTLE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Register <code>descriptor</code>, replacing the container registered with the same key.
+     *
+     * @throws IllegalArgumentException if another container has the same full artwork or database id.
+     */
+    public synchronized void register(ContainerDescriptor descriptor) {
+        ContainerDescriptor previous = byKey.get(descriptor.getKey());
+        ContainerDescriptor sameResId = byResId.get(descriptor.getFullIconResId());
+        if (sameResId != null && sameResId != previous) {
+            throw new IllegalArgumentException("full artwork of " + descriptor.getKey()
+                    + " already used by " + sameResId.getKey());
+        }
+        boolean hasDatabaseId = descriptor.getDatabaseId() != ContainerDescriptor.NO_DATABASE_ID;
+        ContainerDescriptor sameDatabaseId = hasDatabaseId ? byDatabaseId.get(descriptor.getDatabaseId()) : null;
+        if (sameDatabaseId != null && sameDatabaseId != previous) {
+            throw new IllegalArgumentException("database id " + descriptor.getDatabaseId() + " of "
+                    + descriptor.getKey() + " already used by " + sameDatabaseId.getKey());
+        }
+
+        if (previous != null) {
+            unregister(previous);
+        }
+        byKey.put(descriptor.getKey(), descriptor);
+        byResId.put(descriptor.getFullIconResId(), descriptor);
+        if (hasDatabaseId) {
+            byDatabaseId.put(descriptor.getDatabaseId(), descriptor);
+        }
+    }
+
+    /**
+     * Forget a custom container. Standard containers cannot be unregistered.
+     */
+    public synchronized void unregister(String key) {
+        ContainerDescriptor descriptor = byKey.get(key);
+        if (descriptor != null) {
+            unregister(descriptor);
+        }
+    }
+
+    private void unregister(ContainerDescriptor descriptor) {
+        if (descriptor.getIcons() != null) {
+            throw new IllegalArgumentException("standard container " + descriptor.getKey() + " cannot be unregistered");
+        }
+        byKey.remove(descriptor.getKey());
+        byResId.remove(descriptor.getFullIconResId());
+        if (descriptor.getDatabaseId() != ContainerDescriptor.NO_DATABASE_ID) {
+            byDatabaseId.remove(descriptor.getDatabaseId());
+        }
+    }
+
+    /**
+     * @param resId Full artwork of the container.
+     * @return the container, or null if none uses this artwork.
+     */
+    public synchronized ContainerDescriptor getByResId(int resId) {
+        return byResId.get(resId);
+    }
+
+    public synchronized ContainerDescriptor getByDatabaseId(int databaseId) {
+        return byDatabaseId.get(databaseId);
+    }
+
+    public synchronized ContainerDescriptor getByKey(String key) {
+        return byKey.get(key);
+    }
+
+    /**
+     * @return the standard container described by <code>icons</code>.
+     */
+    public ContainerDescriptor get(WaterContainerDataModel.WaterContainerIcons icons) {
+        return getByKey(icons.name());
+    }
+
+    /**
+     * @return number of registered containers, standard ones included.
+     */
+    public synchronized int size() {
+        return byKey.size();
+    }
+}
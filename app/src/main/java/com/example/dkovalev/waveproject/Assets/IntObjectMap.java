@@ -0,0 +1,126 @@
+package com.example.dkovalev.waveproject.Assets;
+
+/**
+ * Map from int keys to objects with open addressing and linear probing.
+ * <br/>Keys are stored unboxed, so lookups never allocate and take constant time, unlike
+ * {@link java.util.HashMap} which boxes keys or {@link android.util.SparseArray} which searches
+ * in O(log n). Null values are not supported.
+ */
+final class IntObjectMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    // null marks a free slot
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    IntObjectMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        for (int i = slot(key); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the value previously mapped to <code>key</code>, or null.
+     */
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("null values are not supported");
+        }
+        int i = slot(key);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        // keep at least half of the slots free so probe sequences stay short
+        if (++size * 2 > values.length) {
+            rehash(values.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * @return the value removed, or null if <code>key</code> was not mapped.
+     */
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        int i = slot(key);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V removed = (V) values[i];
+                values[i] = null;
+                size--;
+                closeGap(i);
+                return removed;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Move back the entries following the freed slot <code>gap</code> which would not be found anymore.
+     */
+    private void closeGap(int gap) {
+        for (int i = (gap + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+            int home = slot(keys[i]);
+            // the entry may stay if its home slot lies cyclically in (gap, i]
+            boolean reachable = gap <= i ? gap < home && home <= i : gap < home || home <= i;
+            if (!reachable) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                values[i] = null;
+                gap = i;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int j = slot(oldKeys[i]);
+                while (values[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @return home slot of <code>key</code>. Resource and database ids are sequential,
+     * so the bits are mixed before masking.
+     */
+    private int slot(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
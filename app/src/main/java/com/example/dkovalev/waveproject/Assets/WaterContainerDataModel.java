@@ -2,6 +2,8 @@ package com.example.dkovalev.waveproject.Assets;
 
 
 import com.example.dkovalev.waveproject.R;
+import com.gelitenight.waveview.library.ShapeOutline;
+import com.gelitenight.waveview.library.ShapeOutlines;
 
 /**
  * Created by ardmn on 25.11.2015.
@@ -82,40 +84,31 @@ public class WaterContainerDataModel {
 
     }
 
+    /**
+     * @return fill artwork of the container using <code>resId</code>, the glass one if none does.
+     */
     public static int getFillWaterContainerIcon(int resId) {
-        int position = 0;
-        WaterContainerDataModel.WaterContainerIcons[] array = WaterContainerIcons.values();
-        for (int i = 0; i < array.length; i++)
-            if (array[i].getIconResId() == resId) {
-                position = i;
-                break;
-            }
-
-        return WaterContainerFillIcons.values()[position].getIconResId();
+        return getDescriptorByImageId(resId).getFillIconResId();
     }
 
+    /**
+     * @return empty artwork of the container using <code>resId</code>, the glass one if none does.
+     */
     public static int getEmptyWaterContainerIcon(int resId) {
-        int position = 0;
-        WaterContainerDataModel.WaterContainerIcons[] array = WaterContainerIcons.values();
-        for (int i = 0; i < array.length; i++)
-            if (array[i].getIconResId() == resId) {
-                position = i;
-                break;
-            }
-
-        return WaterContainerEmptyIcons.values()[position].getIconResId();
+        return getDescriptorByImageId(resId).getEmptyIconResId();
     }
 
+    /**
+     * @return standard container using <code>imageId</code>, glass if none does.
+     */
     public static WaterContainerIcons getEnumByImageId(int imageId) {
-        int position = 0;
-        WaterContainerDataModel.WaterContainerIcons[] array = WaterContainerIcons.values();
-        for (int i = 0; i < array.length; i++)
-            if (array[i].getIconResId() == imageId) {
-                position = i;
-                break;
-            }
+        WaterContainerIcons icons = getDescriptorByImageId(imageId).getIcons();
+        return icons != null ? icons : WaterContainerIcons.GLASS;
+    }
 
-        return array[position];
+    private static ContainerDescriptor getDescriptorByImageId(int imageId) {
+        ContainerDescriptor descriptor = ContainerRegistry.getInstance().getByResId(imageId);
+        return descriptor != null ? descriptor : ContainerRegistry.getInstance().get(WaterContainerIcons.GLASS);
     }
 
     public enum WaterContainerTypes {
@@ -158,6 +151,8 @@ public class WaterContainerDataModel {
     private int picker_min_volume = PICKER_MIN_VOLUME_DEFAULT;
     private boolean selected = false;
     private WaterContainerTypes containerType = WaterContainerTypes.CUSTOM;
+    // id of the container outline in ShapeOutlines, used by CUSTOM containers
+    private String shapeId = null;
 
     public int getIconID() {
         return iconID;
@@ -232,6 +227,46 @@ public class WaterContainerDataModel {
         this.containerType = containerType;
     }
 
+    public String getShapeId() {
+        return shapeId;
+    }
+
+    public void setShapeId(String shapeId) {
+        this.shapeId = shapeId;
+    }
+
+    /**
+     * Register the outline of this container and remember its id.
+     *
+     * @param pathData SVG-style path data in unit coordinates, parsed once per distinct id.
+     */
+    public ShapeOutline setShape(String shapeId, String pathData) {
+        this.shapeId = shapeId;
+        return ShapeOutlines.register(shapeId, pathData);
+    }
+
+    /**
+     * @return descriptor of this container from {@link ContainerRegistry}: the registered custom container
+     * with this database id, otherwise the container using the icon, null if there is none.
+     */
+    public ContainerDescriptor getDescriptor() {
+        ContainerRegistry registry = ContainerRegistry.getInstance();
+        if (containerBD_id != -1) {
+            ContainerDescriptor descriptor = registry.getByDatabaseId(containerBD_id);
+            if (descriptor != null) {
+                return descriptor;
+            }
+        }
+        return registry.getByResId(iconID);
+    }
+
+    /**
+     * @return registered outline of this container, or null if it has none.
+     */
+    public ShapeOutline getShape() {
+        return shapeId != null ? ShapeOutlines.get(shapeId) : null;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -247,6 +282,7 @@ public class WaterContainerDataModel {
         if (picker_min_volume != that.picker_min_volume) return false;
         if (selected != that.selected) return false;
         if (name != null ? !name.equals(that.name) : that.name != null) return false;
+        if (shapeId != null ? !shapeId.equals(that.shapeId) : that.shapeId != null) return false;
         return containerType == that.containerType;
 
     }
@@ -262,6 +298,7 @@ public class WaterContainerDataModel {
         result = 31 * result + picker_min_volume;
         result = 31 * result + (selected ? 1 : 0);
         result = 31 * result + (containerType != null ? containerType.hashCode() : 0);
+        result = 31 * result + (shapeId != null ? shapeId.hashCode() : 0);
         return result;
     }
 
@@ -277,6 +314,7 @@ public class WaterContainerDataModel {
                 ", picker_min_volume=" + picker_min_volume +
                 ", selected=" + selected +
                 ", containerType=" + containerType +
+                ", shapeId='" + shapeId + '\'' +
                 '}';
     }
 }
@@ -0,0 +1,79 @@
+package com.example.dkovalev.waveproject.Assets;
+
+/**
+ * Content area of a container artwork scaled to the height of a view.
+ * <br/>Vertically it lies between the top and bottom content offsets of
+ * {@link WaterContainerDataModel.WaterContainerIcons}, horizontally within the artwork,
+ * which is centered like an ImageView with centerCrop would do.
+ * Plain Java, so it is benchmarked on the JVM.
+ */
+public class WaterContainerGeometry {
+    private float scaleY;
+    private float artworkLeft;
+    private float artworkRight;
+    private float contentTop;
+    private float contentBottom;
+
+    /**
+     * Takes the metrics of {@link WaterContainerDataModel.WaterContainerIcons} as plain values instead of
+     * the icons themselves, which reference resources, so that this class compiles without Android.
+     * Without icons, pass 0 for <code>originalImgHeight</code> and the offsets.
+     *
+     * @param originalImgHeight   Height the content offsets refer to, 0 if there are no offsets.
+     * @param topContentOffset    See {@link WaterContainerDataModel.WaterContainerIcons#getTopContentOffset()}.
+     * @param bottomContentOffset See {@link WaterContainerDataModel.WaterContainerIcons#getBottomContentOffset()}.
+     * @param artworkWidth        Intrinsic width of the artwork, 0 if there is none.
+     * @param artworkHeight       Intrinsic height of the artwork, 0 if there is none.
+     */
+    public void update(float viewWidth, float viewHeight,
+                       float originalImgHeight, float topContentOffset, float bottomContentOffset,
+                       float artworkWidth, float artworkHeight) {
+        if (artworkWidth > 0 && artworkHeight > 0) {
+            float scaledWidth = artworkWidth * viewHeight / artworkHeight;
+            artworkLeft = (viewWidth - scaledWidth) / 2f;
+            artworkRight = artworkLeft + scaledWidth;
+        } else {
+            artworkLeft = 0;
+            artworkRight = viewWidth;
+        }
+
+        if (originalImgHeight > 0) {
+            scaleY = viewHeight / originalImgHeight;
+            contentTop = topContentOffset * scaleY;
+            contentBottom = viewHeight - bottomContentOffset * scaleY;
+        } else {
+            scaleY = 0;
+            contentTop = 0;
+            contentBottom = viewHeight;
+        }
+    }
+
+    public float getScaleY() {
+        return scaleY;
+    }
+
+    public float getArtworkLeft() {
+        return artworkLeft;
+    }
+
+    public float getArtworkRight() {
+        return artworkRight;
+    }
+
+    public float getContentTop() {
+        return contentTop;
+    }
+
+    public float getContentBottom() {
+        return contentBottom;
+    }
+
+    /**
+     * @return bottom of a curtain covering the empty part of the content area
+     * when the container is filled to <code>percent</code>, 0 ~ 1.
+     */
+    public float getCurtainBottom(float percent) {
+        float contentHeight = contentBottom - contentTop;
+        return contentTop + contentHeight - contentHeight * percent;
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.dkovalev.waveproject.Assets;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.support.v4.view.ViewCompat;
+import android.util.AttributeSet;
+
+import com.gelitenight.waveview.library.LevelTransition;
+import com.gelitenight.waveview.library.WaveView;
+
+/**
+ * Water container drawn in a single pass: the wave and the curtain, clipped to the content area
+ * of the container, then the container artwork over them.
+ * <br/>Replaces stacked image, wave and curtain views which drew every pixel of the container several times.
+ */
+public class WaterContainerView extends WaveView {
+    public static final long DEFAULT_CURTAIN_ANIMATION_DURATION = 300;
+
+    private final WaterContainerGeometry geometry = new WaterContainerGeometry();
+    private final Paint curtainPaint = new Paint();
+    // same default as the former curtain view
+    private int curtainColor = Color.WHITE;
+    private ContainerDescriptor container;
+    // empty artwork decoded at the height of the view, null until loaded
+    private Bitmap artwork;
+    // artwork being loaded, cancelled when the container or the size changes meanwhile
+    private ContainerArtworkCache.Request artworkRequest;
+    private final LevelTransition curtainPercent = new LevelTransition();
+    private boolean curtainAnimationScheduled;
+    private final Runnable curtainAnimationStep = new Runnable() {
+        @Override
+        public void run() {
+            curtainAnimationScheduled = false;
+            float oldPercent = curtainPercent.getValue();
+            if (curtainPercent.update(System.nanoTime())) {
+                invalidateCurtain(oldPercent);
+            }
+            if (curtainPercent.isRunning()) {
+                scheduleCurtainAnimation();
+            }
+        }
+    };
+    private boolean geometryDirty = true;
+
+    public WaterContainerView(Context context) {
+        super(context);
+        init();
+    }
+
+    public WaterContainerView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public WaterContainerView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init();
+    }
+
+    private void init() {
+        curtainPaint.setColor(curtainColor);
+    }
+
+    /**
+     * @return the standard container shown, null for a custom one or none.
+     */
+    public WaterContainerDataModel.WaterContainerIcons getWaterContainerIcons() {
+        return container != null ? container.getIcons() : null;
+    }
+
+    /**
+     * Show the standard container, see {@link #setContainer}.
+     */
+    public void setWaterContainerIcons(WaterContainerDataModel.WaterContainerIcons waterContainerIcons) {
+        setContainer(waterContainerIcons != null ? ContainerRegistry.getInstance().get(waterContainerIcons) : null);
+    }
+
+    public ContainerDescriptor getContainer() {
+        return container;
+    }
+
+    /**
+     * Set the container, standard or custom, its empty artwork is drawn over the water.
+     */
+    public void setContainer(ContainerDescriptor container) {
+        if (this.container != container) {
+            this.container = container;
+            loadArtwork();
+        }
+    }
+
+    /**
+     * Show the empty artwork of the container at the height of the view, from {@link ContainerArtworkCache}.
+     * <br/>A cached artwork is shown right away, otherwise the previous one stays drawn until it is decoded.
+     */
+    private void loadArtwork() {
+        cancelArtworkRequest();
+        if (container == null || getHeight() <= 0) {
+            setArtwork(null);
+        } else {
+            artworkRequest = new ContainerArtworkCache.Request(container,
+                    ContainerArtworkCache.Variant.EMPTY, getHeight()) {
+                @Override
+                public void onArtworkLoaded(Bitmap artwork) {
+                    artworkRequest = null;
+                    setArtwork(artwork);
+                }
+            };
+            ContainerArtworkCache.getInstance(getContext()).load(artworkRequest);
+        }
+    }
+
+    private void cancelArtworkRequest() {
+        if (artworkRequest != null) {
+            artworkRequest.cancel();
+            artworkRequest = null;
+        }
+    }
+
+    private void setArtwork(Bitmap artwork) {
+        this.artwork = artwork;
+        geometryDirty = true;
+        invalidate();
+    }
+
+    public int getCurtainColor() {
+        return curtainColor;
+    }
+
+    /**
+     * @param curtainColor Color covering the empty part of the container, transparent for no curtain.
+     *                     Default to be white.
+     */
+    public void setCurtainColor(int curtainColor) {
+        this.curtainColor = curtainColor;
+        curtainPaint.setColor(curtainColor);
+        invalidate();
+    }
+
+    public float getCurtainPercent() {
+        return curtainPercent.getValue();
+    }
+
+    /**
+     * Jump to <code>curtainPercent</code>, stopping a running animation.
+     *
+     * @param curtainPercent Filled part of the container, 0 ~ 1. The curtain covers the rest.
+     */
+    public void setCurtainPercent(float curtainPercent) {
+        float oldPercent = this.curtainPercent.getValue();
+        this.curtainPercent.set(curtainPercent);
+        if (oldPercent != curtainPercent) {
+            invalidateCurtain(oldPercent);
+        }
+    }
+
+    public void animateCurtainPercentTo(float curtainPercent) {
+        animateCurtainPercentTo(curtainPercent, DEFAULT_CURTAIN_ANIMATION_DURATION);
+    }
+
+    /**
+     * Move the curtain smoothly to <code>curtainPercent</code>.
+     * <br/>Calling it again while moving retargets the running animation.
+     *
+     * @param curtainPercent Filled part of the container, 0 ~ 1.
+     */
+    public void animateCurtainPercentTo(float curtainPercent, long durationMillis) {
+        float oldPercent = this.curtainPercent.getValue();
+        this.curtainPercent.animateTo(curtainPercent, durationMillis, System.nanoTime());
+        if (this.curtainPercent.isRunning()) {
+            scheduleCurtainAnimation();
+        } else if (oldPercent != curtainPercent) {
+            invalidateCurtain(oldPercent);
+        }
+    }
+
+    private void scheduleCurtainAnimation() {
+        if (!curtainAnimationScheduled) {
+            curtainAnimationScheduled = true;
+            ViewCompat.postOnAnimation(this, curtainAnimationStep);
+        }
+    }
+
+    /**
+     * Invalidate the rows between the old and the current bottom of the curtain.
+     */
+    private void invalidateCurtain(float oldPercent) {
+        if (curtainColor == Color.TRANSPARENT) {
+            return;
+        }
+        if (geometryDirty) {
+            // nothing drawn for this geometry yet
+            invalidate();
+            return;
+        }
+        float oldBottom = geometry.getCurtainBottom(oldPercent);
+        float bottom = geometry.getCurtainBottom(curtainPercent.getValue());
+        int top = (int) Math.floor(Math.min(oldBottom, bottom));
+        int dirtyBottom = (int) Math.ceil(Math.max(oldBottom, bottom));
+        invalidate((int) Math.floor(geometry.getArtworkLeft()), Math.max(0, top),
+                (int) Math.ceil(geometry.getArtworkRight()), Math.min(getHeight(), dirtyBottom));
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+
+        // nobody sees the rest of the animation
+        if (curtainPercent.isRunning()) {
+            curtainPercent.finish();
+            invalidate();
+        }
+        removeCallbacks(curtainAnimationStep);
+        curtainAnimationScheduled = false;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        geometryDirty = true;
+        if (h != oldh) {
+            loadArtwork();
+        }
+    }
+
+    private void updateGeometry() {
+        int w = getWidth();
+        int h = getHeight();
+        float artworkWidth = artwork != null ? artwork.getWidth() : 0;
+        float artworkHeight = artwork != null ? artwork.getHeight() : 0;
+        if (container != null) {
+            geometry.update(w, h, container.getOriginalImgHeight(),
+                    container.getTopContentOffset(), container.getBottomContentOffset(),
+                    artworkWidth, artworkHeight);
+        } else {
+            geometry.update(w, h, 0, 0, 0, artworkWidth, artworkHeight);
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (geometryDirty) {
+            geometryDirty = false;
+            updateGeometry();
+        }
+
+        int saveCount = canvas.save();
+        canvas.clipRect(geometry.getArtworkLeft(), geometry.getContentTop(),
+                geometry.getArtworkRight(), geometry.getContentBottom());
+        super.onDraw(canvas);
+        if (curtainColor != Color.TRANSPARENT) {
+            canvas.drawRect(geometry.getArtworkLeft(), geometry.getContentTop(),
+                    geometry.getArtworkRight(), geometry.getCurtainBottom(curtainPercent.getValue()), curtainPaint);
+        }
+        canvas.restoreToCount(saveCount);
+
+        // decoded at the drawn size, so it is drawn without scaling
+        if (artwork != null) {
+            canvas.drawBitmap(artwork, Math.round(geometry.getArtworkLeft()), 0, null);
+        }
+    }
+}
@@ -5,20 +5,18 @@ import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
-import android.widget.ImageView;
 
-import com.example.dkovalev.waveproject.Assets.Sector;
 import com.example.dkovalev.waveproject.Assets.WaterContainerDataModel;
-import com.example.dkovalev.waveproject.Assets.WaterCurtain;
+import com.example.dkovalev.waveproject.Assets.WaterContainerView;
 import com.example.dkovalev.waveproject.Assets.WaveHelper;
 import com.gelitenight.waveview.library.WaveView;
-import com.squareup.picasso.Picasso;
 
 //TODO Динамическая подстройка под различные изображения
 //TODO Сделать масштабирование исходя из ширины и высоты экрана
 
 public class MainActivity extends AppCompatActivity {
-    private WaterCurtain waterCurtain;
+    private static final long LEVEL_ANIMATION_DURATION = 300;
+
     private float incr;
     private WaveHelper waveHelper;
 
@@ -27,17 +25,9 @@ public class MainActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        final WaveView waveView = (WaveView) findViewById(R.id.waveview);
-
-        ImageView imageFill = (ImageView) findViewById(R.id.image_fill);
-        Picasso.with(this).load(R.drawable.water_drop_fill).into(imageFill);
-
-        ImageView imageFront = (ImageView) findViewById(R.id.image_front);
-        Picasso.with(this).load(R.drawable.water_drop).into(imageFront);
-
-
-        waterCurtain = (WaterCurtain) findViewById(R.id.image_curtain);
-        waterCurtain.setWaterContainerIcons(WaterContainerDataModel.WaterContainerIcons.BOTTLE);
+        // artwork, wave and curtain of the container in one view
+        final WaterContainerView waveView = (WaterContainerView) findViewById(R.id.container_view);
+        waveView.setWaterContainerIcons(WaterContainerDataModel.WaterContainerIcons.DROP);
 
         final Button increaseButton = (Button) findViewById(R.id.btn_increase);
         assert increaseButton != null;
@@ -52,8 +42,8 @@ public class MainActivity extends AppCompatActivity {
             public void onClick(View v) {
 
                 incr += 0.1;
-                waterCurtain.setSector(new Sector(Color.WHITE, getRounded(incr)));
-                waveView.setWaterLevelRatio(getRounded(incr)*0.9f);
+                waveView.animateCurtainPercentTo(getRounded(incr), LEVEL_ANIMATION_DURATION);
+                waveView.animateWaterLevelTo(getRounded(incr) * 0.9f, LEVEL_ANIMATION_DURATION);
 
                 if (getRounded(incr) > 0) {
                     decreaseButton.setEnabled(true);
@@ -69,8 +59,8 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onClick(View v) {
                 incr -= 0.1f;
-                waterCurtain.setSector(new Sector(Color.WHITE, getRounded(incr)));
-                waveView.setWaterLevelRatio(getRounded(incr)*0.9f);
+                waveView.animateCurtainPercentTo(getRounded(incr), LEVEL_ANIMATION_DURATION);
+                waveView.animateWaterLevelTo(getRounded(incr) * 0.9f, LEVEL_ANIMATION_DURATION);
 
                 if (getRounded(incr) < 1f) {
                     increaseButton.setEnabled(true);
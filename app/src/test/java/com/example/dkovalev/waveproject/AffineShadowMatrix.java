@@ -0,0 +1,145 @@
+package com.example.dkovalev.waveproject;
+
+import android.graphics.Matrix;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.internal.ShadowExtractor;
+
+/**
+ * Matrix shadow computing the translations and scales for real, like the native matrix of a device,
+ * without allocating.
+ * <br/>The default shadow records every operation as a string instead, so frames would seem to allocate.
+ */
+@Implements(Matrix.class)
+public class AffineShadowMatrix {
+    // row major, as Matrix#getValues
+    private final float[] values = new float[9];
+    private final float[] operation = new float[9];
+    private final float[] product = new float[9];
+
+    public AffineShadowMatrix() {
+        setIdentity(values);
+    }
+
+    public void __constructor__(Matrix src) {
+        set(src);
+    }
+
+    @Implementation
+    public boolean isIdentity() {
+        return values[0] == 1 && values[1] == 0 && values[2] == 0
+                && values[3] == 0 && values[4] == 1 && values[5] == 0
+                && values[6] == 0 && values[7] == 0 && values[8] == 1;
+    }
+
+    @Implementation
+    public void set(Matrix src) {
+        if (src == null) {
+            reset();
+        } else {
+            System.arraycopy(shadowOf(src).values, 0, values, 0, 9);
+        }
+    }
+
+    @Implementation
+    public void reset() {
+        setIdentity(values);
+    }
+
+    @Implementation
+    public void setTranslate(float dx, float dy) {
+        setTranslate(values, dx, dy);
+    }
+
+    @Implementation
+    public void setScale(float sx, float sy) {
+        setScale(values, sx, sy, 0, 0);
+    }
+
+    @Implementation
+    public void setScale(float sx, float sy, float px, float py) {
+        setScale(values, sx, sy, px, py);
+    }
+
+    @Implementation
+    public boolean preTranslate(float dx, float dy) {
+        setTranslate(operation, dx, dy);
+        return concat(values, operation);
+    }
+
+    @Implementation
+    public boolean preScale(float sx, float sy) {
+        setScale(operation, sx, sy, 0, 0);
+        return concat(values, operation);
+    }
+
+    @Implementation
+    public boolean postTranslate(float dx, float dy) {
+        setTranslate(operation, dx, dy);
+        return concat(operation, values);
+    }
+
+    @Implementation
+    public boolean postScale(float sx, float sy) {
+        setScale(operation, sx, sy, 0, 0);
+        return concat(operation, values);
+    }
+
+    @Implementation
+    public boolean postScale(float sx, float sy, float px, float py) {
+        setScale(operation, sx, sy, px, py);
+        return concat(operation, values);
+    }
+
+    @Implementation
+    public void getValues(float[] values) {
+        System.arraycopy(this.values, 0, values, 0, 9);
+    }
+
+    @Implementation
+    public void setValues(float[] values) {
+        System.arraycopy(values, 0, this.values, 0, 9);
+    }
+
+    /**
+     * Store <code>left</code> x <code>right</code> into the values.
+     */
+    private boolean concat(float[] left, float[] right) {
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 3; column++) {
+                product[row * 3 + column] = left[row * 3] * right[column]
+                        + left[row * 3 + 1] * right[3 + column]
+                        + left[row * 3 + 2] * right[6 + column];
+            }
+        }
+        System.arraycopy(product, 0, values, 0, 9);
+        return true;
+    }
+
+    private static void setIdentity(float[] m) {
+        setScale(m, 1, 1, 0, 0);
+    }
+
+    private static void setTranslate(float[] m, float dx, float dy) {
+        setIdentity(m);
+        m[2] = dx;
+        m[5] = dy;
+    }
+
+    private static void setScale(float[] m, float sx, float sy, float px, float py) {
+        m[0] = sx;
+        m[1] = 0;
+        m[2] = px - sx * px;
+        m[3] = 0;
+        m[4] = sy;
+        m[5] = py - sy * py;
+        m[6] = 0;
+        m[7] = 0;
+        m[8] = 1;
+    }
+
+    private static AffineShadowMatrix shadowOf(Matrix matrix) {
+        return (AffineShadowMatrix) ShadowExtractor.extract(matrix);
+    }
+}
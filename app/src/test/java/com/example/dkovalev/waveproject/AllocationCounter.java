@@ -0,0 +1,50 @@
+package com.example.dkovalev.waveproject;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Counts the heap bytes allocated by the current thread, from the HotSpot thread MXBean.
+ * <br/>Tests using it are skipped on JVMs without allocation accounting.
+ * <p>
+ * Unit tests run with <code>-Xbatch</code>, see build.gradle. While HotSpot compiles in background,
+ * the JVM allocates strings on the test thread when it links the method handles Robolectric puts behind
+ * framework calls, at a frame that changes from run to run. Compiling on the calling thread makes
+ * these allocations happen at the same frame on every run.
+ */
+public final class AllocationCounter {
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final long threadId;
+    // bytes allocated by reading the counter itself
+    private final long overhead;
+
+    public AllocationCounter() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue("no allocation accounting on this JVM", bean instanceof com.sun.management.ThreadMXBean);
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue("no allocation accounting on this JVM", threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        threadId = Thread.currentThread().getId();
+
+        long minOverhead = Long.MAX_VALUE;
+        for (int i = 0; i < 100; i++) {
+            long start = allocatedBytes();
+            minOverhead = Math.min(minOverhead, allocatedBytes() - start);
+        }
+        overhead = minOverhead;
+    }
+
+    /**
+     * @return bytes allocated while running <code>block</code>, on the calling thread.
+     */
+    public long measure(Runnable block) {
+        long start = allocatedBytes();
+        block.run();
+        return Math.max(0, allocatedBytes() - start - overhead);
+    }
+
+    private long allocatedBytes() {
+        return threadBean.getThreadAllocatedBytes(threadId);
+    }
+}
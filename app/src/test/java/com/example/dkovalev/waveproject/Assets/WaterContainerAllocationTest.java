@@ -0,0 +1,78 @@
+package com.example.dkovalev.waveproject.Assets;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import com.example.dkovalev.waveproject.AllocationCounter;
+import com.example.dkovalev.waveproject.BuildConfig;
+import com.example.dkovalev.waveproject.AffineShadowMatrix;
+import com.example.dkovalev.waveproject.NoOpCanvas;
+import com.example.dkovalev.waveproject.WaveViewFrames;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Steady state frames of the container view, with a moving curtain, must not allocate.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, shadows = AffineShadowMatrix.class)
+public class WaterContainerAllocationTest {
+    private static final int SIZE = 300;
+    // long enough for HotSpot to compile the frame code, see AllocationCounter
+    private static final int WARM_UP_FRAMES = 3000;
+    private static final int FRAMES = 600;
+
+    private final Canvas canvas = new NoOpCanvas();
+    private AllocationCounter allocations;
+
+    @Before
+    public void setUp() {
+        allocations = new AllocationCounter();
+    }
+
+    @Test
+    public void containerFramesDoNotAllocate() throws Exception {
+        final WaterContainerView container = new WaterContainerView(RuntimeEnvironment.application);
+        WaveViewFrames.layout(container, SIZE, SIZE);
+        container.setShapeType(WaterContainerView.ShapeType.BOTTLE);
+        container.setCurtainColor(Color.WHITE);
+        container.setShowWave(true);
+
+        final Runnable drawFrame = new Runnable() {
+            private int frame;
+
+            @Override
+            public void run() {
+                frame++;
+                container.setWaveShiftRatio((frame % 100) / 100f);
+                // what each step of animateCurtainPercentTo does
+                container.setCurtainPercent((frame % 50) / 50f);
+                container.onDraw(canvas);
+            }
+        };
+        WaveViewFrames.drawUntilWaveShown(container, drawFrame);
+        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+            drawFrame.run();
+        }
+
+        assertEquals("bytes allocated in " + FRAMES + " frames", 0, allocations.measure(repeat(drawFrame)));
+    }
+
+    private static Runnable repeat(final Runnable frame) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < FRAMES; i++) {
+                    frame.run();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.dkovalev.waveproject;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.internal.Shadow;
+
+/**
+ * Choreographer shadow holding frame callbacks until the test delivers a frame with {@link #doFrame},
+ * without allocating, like the choreographer of a device.
+ * <br/>The default shadow wraps every frame callback into a new runnable posted on the looper.
+ * Other callbacks, e.g. view traversals, are still posted on the looper of the main thread.
+ */
+@Implements(Choreographer.class)
+public class ManualShadowChoreographer {
+    private static final int MAX_CALLBACKS = 16;
+
+    private static Choreographer instance;
+    private static final Choreographer.FrameCallback[] callbacks = new Choreographer.FrameCallback[MAX_CALLBACKS];
+    private static final Choreographer.FrameCallback[] runningCallbacks = new Choreographer.FrameCallback[MAX_CALLBACKS];
+    private static int callbackCount;
+    private static long lastFrameTimeNanos;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    @Implementation
+    public static Choreographer getInstance() {
+        if (instance == null) {
+            instance = Shadow.newInstance(Choreographer.class,
+                    new Class[]{Looper.class}, new Object[]{Looper.getMainLooper()});
+        }
+        return instance;
+    }
+
+    /**
+     * Forget every callback, called before each test since Robolectric does not reset custom shadows.
+     */
+    public static void reset() {
+        instance = null;
+        for (int i = 0; i < callbackCount; i++) {
+            callbacks[i] = null;
+        }
+        callbackCount = 0;
+        lastFrameTimeNanos = 0;
+    }
+
+    /**
+     * Run the frame callbacks posted so far. Callbacks posted meanwhile wait for the next frame.
+     */
+    public static void doFrame(long frameTimeNanos) {
+        lastFrameTimeNanos = frameTimeNanos;
+        int count = callbackCount;
+        System.arraycopy(callbacks, 0, runningCallbacks, 0, count);
+        for (int i = 0; i < count; i++) {
+            callbacks[i] = null;
+        }
+        callbackCount = 0;
+        for (int i = 0; i < count; i++) {
+            runningCallbacks[i].doFrame(frameTimeNanos);
+            runningCallbacks[i] = null;
+        }
+    }
+
+    public static int getCallbackCount() {
+        return callbackCount;
+    }
+
+    @Implementation
+    public void postFrameCallbackDelayed(Choreographer.FrameCallback callback, long delayMillis) {
+        if (callbackCount == MAX_CALLBACKS) {
+            throw new IllegalStateException("more than " + MAX_CALLBACKS + " frame callbacks");
+        }
+        callbacks[callbackCount++] = callback;
+    }
+
+    @Implementation
+    public void removeFrameCallback(Choreographer.FrameCallback callback) {
+        int kept = 0;
+        for (int i = 0; i < callbackCount; i++) {
+            if (callbacks[i] != callback) {
+                callbacks[kept++] = callbacks[i];
+            }
+        }
+        for (int i = kept; i < callbackCount; i++) {
+            callbacks[i] = null;
+        }
+        callbackCount = kept;
+    }
+
+    @Implementation
+    public void postCallbackDelayed(int callbackType, Runnable action, Object token, long delayMillis) {
+        handler.postDelayed(action, delayMillis);
+    }
+
+    @Implementation
+    public void removeCallbacks(int callbackType, Runnable action, Object token) {
+        handler.removeCallbacks(action, token);
+    }
+
+    @Implementation
+    public long getFrameTimeNanos() {
+        return lastFrameTimeNanos;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.dkovalev.waveproject;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * Canvas dropping every call made by the views under test, so only the views' own work is measured,
+ * not the bookkeeping of the Robolectric canvas shadow.
+ */
+public class NoOpCanvas extends Canvas {
+    private int saveCount = 1;
+
+    @Override
+    public int save() {
+        return saveCount++;
+    }
+
+    @Override
+    public int saveLayer(float left, float top, float right, float bottom, Paint paint, int saveFlags) {
+        return saveCount++;
+    }
+
+    @Override
+    public int saveLayer(RectF bounds, Paint paint, int saveFlags) {
+        return saveCount++;
+    }
+
+    @Override
+    public void restore() {
+        saveCount--;
+    }
+
+    @Override
+    public void restoreToCount(int saveCount) {
+        this.saveCount = saveCount;
+    }
+
+    @Override
+    public int getSaveCount() {
+        return saveCount;
+    }
+
+    @Override
+    public boolean clipRect(float left, float top, float right, float bottom) {
+        return true;
+    }
+
+    @Override
+    public boolean clipRect(int left, int top, int right, int bottom) {
+        return true;
+    }
+
+    @Override
+    public boolean clipPath(Path path) {
+        return true;
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, Paint paint) {
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+    }
+
+    @Override
+    public void drawRect(RectF rect, Paint paint) {
+    }
+
+    @Override
+    public void drawRect(Rect r, Paint paint) {
+    }
+
+    @Override
+    public void drawPath(Path path, Paint paint) {
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Rect src, RectF dst, Paint paint) {
+    }
+}
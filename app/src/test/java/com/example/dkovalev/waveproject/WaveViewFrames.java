@@ -0,0 +1,54 @@
+package com.example.dkovalev.waveproject;
+
+import android.view.View;
+
+import com.gelitenight.waveview.library.WaveFrameStats;
+import com.gelitenight.waveview.library.WaveView;
+
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Helpers to draw frames of wave views outside of a window.
+ */
+public final class WaveViewFrames {
+    private static final long TEXTURE_TIMEOUT_MILLIS = 10000;
+
+    private WaveViewFrames() {
+    }
+
+    public static void layout(View view, int width, int height) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, width, height);
+    }
+
+    /**
+     * Run <code>drawFrame</code> until the wave texture of <code>view</code>, synthesized in background, is shown.
+     * <br/>Leaves a frame statistics listener on the view.
+     */
+    public static void drawUntilWaveShown(WaveView view, Runnable drawFrame) throws InterruptedException {
+        final boolean[] shown = new boolean[1];
+        view.setFrameStatsListener(new WaveView.OnFrameStatsListener() {
+            @Override
+            public void onFrameStats(WaveView view, WaveFrameStats stats) {
+                shown[0] = true;
+            }
+        });
+
+        long deadline = System.currentTimeMillis() + TEXTURE_TIMEOUT_MILLIS;
+        while (true) {
+            drawFrame.run();
+            if (shown[0]) {
+                return;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                fail("wave texture not synthesized after " + TEXTURE_TIMEOUT_MILLIS + "ms");
+            }
+            Thread.sleep(5);
+            // deliver the texture posted back to the main thread
+            ShadowLooper.runUiThreadTasks();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.gelitenight.waveview.library;
+
+import android.app.Activity;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import com.example.dkovalev.waveproject.AffineShadowMatrix;
+import com.example.dkovalev.waveproject.AllocationCounter;
+import com.example.dkovalev.waveproject.BuildConfig;
+import com.example.dkovalev.waveproject.ManualShadowChoreographer;
+import com.example.dkovalev.waveproject.NoOpCanvas;
+import com.example.dkovalev.waveproject.WaveViewFrames;
+import com.gelitenight.waveview.library.WaveView.ShapeType;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Steady state frames of {@link WaveView}, animated from {@link android.view.Choreographer} frames,
+ * must not allocate, for every shape type and shape renderer.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21,
+        shadows = {AffineShadowMatrix.class, ManualShadowChoreographer.class})
+public class WaveViewAllocationTest {
+    private static final int SIZE = 300;
+    // long enough for HotSpot to compile the frame code, see AllocationCounter
+    private static final int WARM_UP_FRAMES = 3000;
+    private static final int FRAMES = 600;
+    private static final long FRAME_NANOS = 16666667L;
+    // frames between two water level transitions
+    private static final int LEVEL_PERIOD = 60;
+
+    private final Canvas canvas = new NoOpCanvas();
+    private AllocationCounter allocations;
+
+    private WaveView view;
+    private long frameTimeNanos;
+    private int frame;
+
+    private final Runnable drawFrame = new Runnable() {
+        @Override
+        public void run() {
+            frameTimeNanos += FRAME_NANOS;
+            if (++frame % LEVEL_PERIOD == 0) {
+                view.animateWaterLevelTo(view.getWaterLevelRatio() > 0.5f ? 0.3f : 0.7f, 300);
+            }
+            ManualShadowChoreographer.doFrame(frameTimeNanos);
+            view.onDraw(canvas);
+        }
+    };
+
+    private final Runnable drawFrames = new Runnable() {
+        @Override
+        public void run() {
+            for (int i = 0; i < FRAMES; i++) {
+                drawFrame.run();
+            }
+        }
+    };
+
+    @Before
+    public void setUp() {
+        ManualShadowChoreographer.reset();
+        allocations = new AllocationCounter();
+    }
+
+    @Test
+    public void framesDoNotAllocate() throws Exception {
+        for (ShapeType shapeType : ShapeType.values()) {
+            assertFramesDoNotAllocate(shapeType, null);
+        }
+    }
+
+    @Test
+    public void shapeRendererFramesDoNotAllocate() throws Exception {
+        ShapeRenderer[] renderers = {
+                new ShaderShapeRenderer(), new MaskShapeRenderer(), new ClipShapeRenderer()};
+        for (ShapeRenderer renderer : renderers) {
+            assertFramesDoNotAllocate(ShapeType.BOTTLE, renderer);
+        }
+    }
+
+    private void assertFramesDoNotAllocate(ShapeType shapeType, ShapeRenderer renderer) throws Exception {
+        ShadowLooper.unPauseMainLooper();
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        view = new WaveView(activity);
+        if (shapeType == ShapeType.CUSTOM) {
+            view.setCustomShape(ShapeOutlines.DROP);
+        } else {
+            view.setShapeType(shapeType);
+        }
+        if (renderer != null) {
+            view.setShapeRenderer(renderer);
+        }
+        view.setBorder(2, Color.BLUE);
+        view.setShowWave(true);
+        // the test window never gets the focus
+        view.setPauseOnFocusLoss(false);
+        view.setAmplitudeAnimation(0.03f, 0.06f, 2000);
+        view.startWaveAnimation();
+        // attached and laid out by the traversal run right away
+        activity.setContentView(view, new FrameLayout.LayoutParams(SIZE, SIZE));
+        // the window manager of a device shows the window, Robolectric never does
+        ReflectionHelpers.callInstanceMethod(view.getRootView().getParent(), "dispatchAppVisibility",
+                ReflectionHelpers.ClassParameter.from(boolean.class, true));
+        assertEquals(SIZE, view.getWidth());
+        assertEquals(View.VISIBLE, view.getWindowVisibility());
+        // frames now only come from the test, later traversals wait in the paused looper
+        ShadowLooper.pauseMainLooper();
+        assertTrue("animation waits for a frame", ManualShadowChoreographer.getCallbackCount() > 0);
+
+        // level transitions are timed from System.nanoTime()
+        frameTimeNanos = System.nanoTime();
+        frame = 0;
+        WaveViewFrames.drawUntilWaveShown(view, drawFrame);
+        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+            drawFrame.run();
+        }
+
+        String name = renderer != null ? shapeType + " with " + renderer.getClass().getSimpleName() : shapeType.name();
+        assertEquals(name + ", bytes allocated in " + FRAMES + " frames", 0, allocations.measure(drawFrames));
+        assertTrue(name + " animated", view.getWaveShiftRatio() > 0f);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.dkovalev.waveproject.Assets;
+
+import com.gelitenight.waveview.library.LevelTransition;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Curtain geometry of {@code WaterContainerView} and the level transition driving
+ * animated water levels and curtains.
+ */
+@State(Scope.Thread)
+public class LevelMathBenchmark {
+    @Param({"240", "540", "1080"})
+    public int size;
+
+    private final WaterContainerGeometry mGeometry = new WaterContainerGeometry();
+    private final LevelTransition mTransition = new LevelTransition();
+    private float mPercent;
+    private long mTimeNanos;
+
+    @Setup
+    public void setUp() {
+        // BOTTLE container offsets
+        mGeometry.update(size, size, 528f, 57f, 13f, 0, 0);
+    }
+
+    @Benchmark
+    public float curtainGeometry() {
+        mGeometry.update(size, size, 528f, 57f, 13f, 0, 0);
+        return mGeometry.getCurtainBottom(0.5f);
+    }
+
+    @Benchmark
+    public float curtainBottom() {
+        mPercent = mPercent >= 1f ? 0f : mPercent + 0.01f;
+        return mGeometry.getCurtainBottom(mPercent);
+    }
+
+    @Benchmark
+    public float levelTransition() {
+        // a 300ms transition restarted whenever it ends
+        mTimeNanos += 16666667L;
+        if (!mTransition.isRunning()) {
+            mTransition.animateTo(mTransition.getValue() > 0.5f ? 0f : 1f, 300, mTimeNanos);
+        }
+        mTransition.update(mTimeNanos);
+        return mTransition.getValue();
+    }
+}
@@ -0,0 +1,51 @@
+package com.gelitenight.waveview.library;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Outline geometry of the path based shapes as {@link WaveRasterizer} computes it: parsing the path data,
+ * flattening it to the frame size, and rendering a whole frame clipped to the shape.
+ * <br/>On devices, WaveView builds a platform Path with ShapePathCache instead, which is not measured here.
+ */
+@State(Scope.Thread)
+public class RasterizerGeometryBenchmark {
+    @Param({"240", "540", "1080"})
+    public int size;
+
+    @Param({"BOTTLE", "DROP", "GLASS"})
+    public String shapeType;
+
+    private ShapeOutline mOutline;
+    private WaveRasterizer mRasterizer;
+    private int[] mPixels;
+
+    @Setup
+    public void setUp() {
+        mOutline = "BOTTLE".equals(shapeType) ? ShapeOutlines.BOTTLE
+                : "DROP".equals(shapeType) ? ShapeOutlines.DROP : ShapeOutlines.GLASS;
+        mRasterizer = new WaveRasterizer();
+        mRasterizer.setBorder(2, 0xFF000000);
+        mRasterizer.setOutline(mOutline);
+        mPixels = new int[size * size];
+    }
+
+    @Benchmark
+    public ShapeOutline parse() {
+        return ShapeOutline.parse(mOutline.getId(), mOutline.getPathData());
+    }
+
+    @Benchmark
+    public float[] flatten() {
+        return WaveRasterizer.flatten(mOutline, size, size);
+    }
+
+    @Benchmark
+    public int[] rasterize() {
+        mRasterizer.render(mPixels, size, size);
+        return mPixels;
+    }
+}
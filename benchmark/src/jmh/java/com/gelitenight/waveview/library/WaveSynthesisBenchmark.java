@@ -0,0 +1,94 @@
+package com.gelitenight.waveview.library;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Wave texture synthesis of {@code WaveView}, for each texture mode,
+ * and the crest evaluation it is built on.
+ */
+@State(Scope.Thread)
+public class WaveSynthesisBenchmark {
+    @Param({"240", "540", "1080"})
+    public int size;
+
+    @Param({"2", "4"})
+    public int layerCount;
+
+    private WaveLayer[] mLayers;
+    private float mWaterLevel;
+    private float mAmplitude;
+    private float mWaveLength;
+    private int mStripTop;
+    private int mStripRows;
+
+    private int[] mFullPixels;
+    private int[] mStripPixels;
+    private byte[] mStripAlpha;
+    private float[] mCrests;
+
+    @Setup
+    public void setUp() {
+        mLayers = new WaveLayer[layerCount];
+        for (int i = 0; i < layerCount; i++) {
+            mLayers[i] = new WaveLayer(1f - 0.2f * i, i + 1, 0.25f * i, 0x280000FF + 0x0A000000 * i);
+        }
+
+        // default geometry of createShader
+        mWaterLevel = size * WaveModel.DEFAULT_WATER_LEVEL_RATIO;
+        mAmplitude = size * WaveModel.DEFAULT_AMPLITUDE_RATIO;
+        mWaveLength = size * WaveModel.DEFAULT_WAVE_LENGTH_RATIO;
+
+        // rows of a STRIP texture, as in WaveTexture.create
+        float bandAmplitude = mAmplitude * WaveLayer.maxAmplitudeRatio(mLayers);
+        mStripTop = Math.max(0, WaveTextureGenerator.bandTop(mWaterLevel, bandAmplitude) - 1);
+        mStripRows = Math.min(size, WaveTextureGenerator.bandBottom(mWaterLevel, bandAmplitude) + 1) - mStripTop;
+
+        mFullPixels = new int[size * size];
+        mStripPixels = new int[size * mStripRows];
+        mStripAlpha = new byte[size * mStripRows];
+        mCrests = new float[size];
+    }
+
+    @Benchmark
+    public int[] fullTexture() {
+        WaveTextureGenerator.generate(mFullPixels, size, 0, size,
+                mWaterLevel, mAmplitude, mWaveLength, mLayers);
+        return mFullPixels;
+    }
+
+    @Benchmark
+    public int[] stripTexture() {
+        WaveTextureGenerator.generate(mStripPixels, size, mStripTop, mStripRows,
+                mWaterLevel, mAmplitude, mWaveLength, mLayers);
+        return mStripPixels;
+    }
+
+    @Benchmark
+    public byte[] alphaStripTexture() {
+        WaveTextureGenerator.generateAlpha(mStripAlpha, size, size, mStripTop, mStripRows,
+                mWaterLevel, mAmplitude, mWaveLength, mLayers);
+        return mStripAlpha;
+    }
+
+    @Benchmark
+    public float[] crestsSineTable() {
+        WaveModel.evaluate(mLayers[0], mCrests, size, mWaterLevel, mAmplitude, mWaveLength, 0f);
+        return mCrests;
+    }
+
+    /**
+     * Baseline of {@link #crestsSineTable}.
+     */
+    @Benchmark
+    public float[] crestsMathSin() {
+        double angularFrequency = 2 * Math.PI / mWaveLength;
+        for (int x = 0; x < size; x++) {
+            mCrests[x] = (float) (mWaterLevel + mAmplitude * Math.sin(x * angularFrequency));
+        }
+        return mCrests;
+    }
+}
@@ -0,0 +1,32 @@
+package com.gelitenight.waveview.library;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+/**
+ * Clips the canvas to the outline and fills the clipped bounds with the wave paint.
+ * <br/>Hardware accelerated canvases support path clipping from API 18 only,
+ * {@link WaveView} falls back to a software layer below that. Clip edges are not antialiased.
+ */
+public class ClipShapeRenderer implements ShapeRenderer {
+    private final RectF mBounds = new RectF();
+
+    @Override
+    public void setShape(Path shape, int width, int height) {
+        shape.computeBounds(mBounds, true);
+    }
+
+    @Override
+    public void draw(Canvas canvas, Path shape, Paint wavePaint) {
+        int saveCount = canvas.save();
+        canvas.clipPath(shape);
+        canvas.drawRect(mBounds, wavePaint);
+        canvas.restoreToCount(saveCount);
+    }
+
+    @Override
+    public void release() {
+    }
+}
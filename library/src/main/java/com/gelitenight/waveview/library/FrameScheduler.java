@@ -0,0 +1,88 @@
+package com.gelitenight.waveview.library;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.view.Choreographer;
+
+/**
+ * One frame callback at a time, on the thread that created the scheduler: from its {@link Choreographer},
+ * or posted every 16ms on a {@link Handler} before API 16.
+ * <br/>Nothing is allocated when posting or delivering frames.
+ */
+abstract class FrameScheduler {
+    private static final long FALLBACK_FRAME_DELAY = 16;
+
+    interface Callback {
+        void doFrame(long frameTimeNanos);
+    }
+
+    final Callback mCallback;
+
+    private FrameScheduler(Callback callback) {
+        mCallback = callback;
+    }
+
+    /**
+     * Must be called on a thread with a looper.
+     */
+    static FrameScheduler create(Callback callback) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                ? new ChoreographerScheduler(callback) : new HandlerScheduler(callback);
+    }
+
+    /**
+     * Deliver the next frame to the callback.
+     */
+    abstract void post();
+
+    abstract void cancel();
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static final class ChoreographerScheduler extends FrameScheduler implements Choreographer.FrameCallback {
+        // the instance of the creating thread
+        private final Choreographer mChoreographer = Choreographer.getInstance();
+
+        ChoreographerScheduler(Callback callback) {
+            super(callback);
+        }
+
+        @Override
+        void post() {
+            mChoreographer.postFrameCallback(this);
+        }
+
+        @Override
+        void cancel() {
+            mChoreographer.removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mCallback.doFrame(frameTimeNanos);
+        }
+    }
+
+    private static final class HandlerScheduler extends FrameScheduler implements Runnable {
+        private final Handler mHandler = new Handler();
+
+        HandlerScheduler(Callback callback) {
+            super(callback);
+        }
+
+        @Override
+        void post() {
+            mHandler.postDelayed(this, FALLBACK_FRAME_DELAY);
+        }
+
+        @Override
+        void cancel() {
+            mHandler.removeCallbacks(this);
+        }
+
+        @Override
+        public void run() {
+            mCallback.doFrame(System.nanoTime());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.gelitenight.waveview.library;
+
+/**
+ * Decelerating transition of a single value, which can be retargeted while running.
+ * <br/>A new target restarts the transition from the current value, so rapid changes produce
+ * one continuous motion instead of stacked animations. Times are in {@link System#nanoTime()} base,
+ * like {@link android.view.Choreographer} frame times. Nothing is allocated.
+ */
+public final class LevelTransition {
+    private float mValue;
+    private float mFrom;
+    private float mTo;
+    private long mStartNanos;
+    private long mDurationNanos;
+    private boolean mRunning;
+
+    public float getValue() {
+        return mValue;
+    }
+
+    /**
+     * @return value the transition ends with, or the current value if not running.
+     */
+    public float getTarget() {
+        return mRunning ? mTo : mValue;
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * Jump to <code>value</code> and stop.
+     */
+    public void set(float value) {
+        mValue = value;
+        mRunning = false;
+    }
+
+    /**
+     * Move from the current value to <code>target</code> within <code>durationMillis</code>.
+     */
+    public void animateTo(float target, long durationMillis, long nowNanos) {
+        if (durationMillis <= 0 || target == mValue) {
+            set(target);
+            return;
+        }
+        mFrom = mValue;
+        mTo = target;
+        mStartNanos = nowNanos;
+        mDurationNanos = durationMillis * 1000000L;
+        mRunning = true;
+    }
+
+    /**
+     * Jump to the target and stop.
+     */
+    public void finish() {
+        if (mRunning) {
+            set(mTo);
+        }
+    }
+
+    /**
+     * Compute the value at <code>nowNanos</code>.
+     *
+     * @return true if the value changed.
+     */
+    public boolean update(long nowNanos) {
+        if (!mRunning) {
+            return false;
+        }
+        float t = (float) (nowNanos - mStartNanos) / mDurationNanos;
+        float value;
+        if (t >= 1f) {
+            value = mTo;
+            mRunning = false;
+        } else {
+            t = t < 0f ? 0f : t;
+            // decelerate
+            float remaining = 1f - t;
+            value = mFrom + (mTo - mFrom) * (1f - remaining * remaining);
+        }
+        boolean changed = value != mValue;
+        mValue = value;
+        return changed;
+    }
+}
@@ -0,0 +1,69 @@
+package com.gelitenight.waveview.library;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.RectF;
+
+/**
+ * Rasterizes the outline once into an ALPHA_8 mask and composites the wave through it
+ * with {@link PorterDuff.Mode#DST_IN}.
+ * <br/>Each frame costs a layer, a rect fill and a bitmap blit, whatever the complexity of the outline.
+ */
+public class MaskShapeRenderer implements ShapeRenderer {
+    private final Paint mMaskPaint;
+    private final Paint mFillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Canvas mMaskCanvas = new Canvas();
+    private final RectF mBounds = new RectF();
+
+    private Bitmap mMask;
+
+    public MaskShapeRenderer() {
+        mMaskPaint = new Paint();
+        mMaskPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.DST_IN));
+    }
+
+    @Override
+    public void setShape(Path shape, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            release();
+            return;
+        }
+        if (mMask == null || mMask.getWidth() != width || mMask.getHeight() != height) {
+            release();
+            mMask = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+        } else {
+            mMask.eraseColor(0);
+        }
+
+        mMaskCanvas.setBitmap(mMask);
+        mMaskCanvas.drawPath(shape, mFillPaint);
+        mMaskCanvas.setBitmap(null);
+
+        shape.computeBounds(mBounds, true);
+        // keep antialiased edge pixels inside the layer
+        mBounds.set((float) Math.floor(mBounds.left), (float) Math.floor(mBounds.top),
+                (float) Math.ceil(mBounds.right), (float) Math.ceil(mBounds.bottom));
+    }
+
+    @Override
+    public void draw(Canvas canvas, Path shape, Paint wavePaint) {
+        if (mMask == null) {
+            return;
+        }
+        int saveCount = canvas.saveLayer(mBounds.left, mBounds.top, mBounds.right, mBounds.bottom,
+                null, Canvas.ALL_SAVE_FLAG);
+        canvas.drawRect(mBounds, wavePaint);
+        canvas.drawBitmap(mMask, 0, 0, mMaskPaint);
+        canvas.restoreToCount(saveCount);
+    }
+
+    @Override
+    public void release() {
+        // the display list of the last frame may still draw the mask, leave it to the garbage collector
+        mMask = null;
+    }
+}
@@ -0,0 +1,84 @@
+package com.gelitenight.waveview.library;
+
+import android.annotation.TargetApi;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.PowerManager;
+
+import java.util.ArrayList;
+
+/**
+ * Shares one power save mode receiver between every listening {@link WaveView}.
+ * <br/>Power save mode exists from API 21, before that it is always off.
+ * Must be used on the main thread.
+ */
+final class PowerSaveMonitor {
+    interface Listener {
+        void onPowerSaveModeChanged(boolean powerSaveMode);
+    }
+
+    private static PowerSaveMonitor sInstance;
+
+    private final Context mContext;
+    private final ArrayList<Listener> mListeners = new ArrayList<>();
+    private BroadcastReceiver mReceiver;
+    private boolean mPowerSaveMode;
+
+    private PowerSaveMonitor(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    static PowerSaveMonitor getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new PowerSaveMonitor(context);
+        }
+        return sInstance;
+    }
+
+    boolean isPowerSaveMode() {
+        return mPowerSaveMode;
+    }
+
+    /**
+     * Start notifying <code>listener</code> and tell it the current mode.
+     */
+    void addListener(Listener listener) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP || mListeners.contains(listener)) {
+            return;
+        }
+        mListeners.add(listener);
+        if (mReceiver == null) {
+            register();
+        }
+        listener.onPowerSaveModeChanged(mPowerSaveMode);
+    }
+
+    void removeListener(Listener listener) {
+        if (mListeners.remove(listener) && mListeners.isEmpty() && mReceiver != null) {
+            mContext.unregisterReceiver(mReceiver);
+            mReceiver = null;
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void register() {
+        final PowerManager powerManager = (PowerManager) mContext.getSystemService(Context.POWER_SERVICE);
+        mReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                boolean powerSaveMode = powerManager.isPowerSaveMode();
+                if (mPowerSaveMode != powerSaveMode) {
+                    mPowerSaveMode = powerSaveMode;
+                    for (int i = mListeners.size() - 1; i >= 0; i--) {
+                        mListeners.get(i).onPowerSaveModeChanged(powerSaveMode);
+                    }
+                }
+            }
+        };
+        mContext.registerReceiver(mReceiver, new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+        mPowerSaveMode = powerManager.isPowerSaveMode();
+    }
+}
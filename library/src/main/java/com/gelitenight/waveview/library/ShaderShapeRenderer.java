@@ -0,0 +1,24 @@
+package com.gelitenight.waveview.library;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+/**
+ * Draws the outline directly with the wave paint, so the path is tessellated on every frame.
+ * <br/>Cheapest in memory, works on every API level and on software canvases.
+ */
+public class ShaderShapeRenderer implements ShapeRenderer {
+    @Override
+    public void setShape(Path shape, int width, int height) {
+    }
+
+    @Override
+    public void draw(Canvas canvas, Path shape, Paint wavePaint) {
+        canvas.drawPath(shape, wavePaint);
+    }
+
+    @Override
+    public void release() {
+    }
+}
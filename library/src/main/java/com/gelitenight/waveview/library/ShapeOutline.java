@@ -0,0 +1,233 @@
+package com.gelitenight.waveview.library;
+
+import java.util.Arrays;
+
+/**
+ * Outline of a container in unit coordinates, (0, 0) being the top left corner
+ * and (1, 1) the bottom right corner of the view.
+ * <br/>Parsed once from SVG-style path data and kept as a compact list of verbs and points,
+ * which {@link WaveView} compiles into a path and scales to the view size.
+ * <p>
+ * Supported commands are M, L, H, V, Q, C and Z, in absolute and relative (lower case) form.
+ * Every subpath is implicitly closed when filled.
+ */
+public final class ShapeOutline {
+    static final byte VERB_MOVE = 0;
+    static final byte VERB_LINE = 1;
+    static final byte VERB_QUAD = 2;
+    static final byte VERB_CUBIC = 3;
+    static final byte VERB_CLOSE = 4;
+
+    private final String mId;
+    private final String mPathData;
+
+    // one entry per command
+    final byte[] verbs;
+    // end point last, control points first, two floats per point
+    final float[] coords;
+
+    private ShapeOutline(String id, String pathData, byte[] verbs, float[] coords) {
+        mId = id;
+        mPathData = pathData;
+        this.verbs = verbs;
+        this.coords = coords;
+    }
+
+    public String getId() {
+        return mId;
+    }
+
+    public String getPathData() {
+        return mPathData;
+    }
+
+    /**
+     * Parse <code>pathData</code> into an outline.
+     *
+     * @param id       Key of the outline in {@link ShapeOutlines}.
+     * @param pathData SVG-style path data in unit coordinates, e.g. <code>"M0.5,0 L1,1 L0,1 Z"</code>.
+     * @throws IllegalArgumentException if path data is empty or malformed.
+     */
+    public static ShapeOutline parse(String id, String pathData) {
+        if (pathData == null) {
+            throw new IllegalArgumentException("path data is null");
+        }
+        return new Parser(pathData).parse(id);
+    }
+
+    @Override
+    public String toString() {
+        return "ShapeOutline{" +
+                "id='" + mId + '\'' +
+                ", pathData='" + mPathData + '\'' +
+                '}';
+    }
+
+    private static final class Parser {
+        private final String mData;
+        private int mPos;
+
+        private byte[] mVerbs = new byte[16];
+        private int mVerbCount;
+        private float[] mCoords = new float[64];
+        private int mCoordCount;
+
+        Parser(String data) {
+            mData = data;
+        }
+
+        ShapeOutline parse(String id) {
+            float x = 0, y = 0;
+            float startX = 0, startY = 0;
+            char command = 0;
+
+            skipSeparators();
+            while (mPos < mData.length()) {
+                char c = mData.charAt(mPos);
+                if (isCommand(c)) {
+                    command = c;
+                    mPos++;
+                } else if (command == 0 || command == 'Z' || command == 'z') {
+                    throw error("command expected");
+                } else if (command == 'M') {
+                    // coordinates following a move are implicit lines
+                    command = 'L';
+                } else if (command == 'm') {
+                    command = 'l';
+                }
+
+                boolean relative = Character.isLowerCase(command);
+                float ox = relative ? x : 0;
+                float oy = relative ? y : 0;
+                switch (Character.toUpperCase(command)) {
+                    case 'M':
+                        x = ox + number();
+                        y = oy + number();
+                        startX = x;
+                        startY = y;
+                        add(VERB_MOVE, x, y);
+                        break;
+                    case 'L':
+                        x = ox + number();
+                        y = oy + number();
+                        add(VERB_LINE, x, y);
+                        break;
+                    case 'H':
+                        x = ox + number();
+                        add(VERB_LINE, x, y);
+                        break;
+                    case 'V':
+                        y = oy + number();
+                        add(VERB_LINE, x, y);
+                        break;
+                    case 'Q': {
+                        float cx = ox + number();
+                        float cy = oy + number();
+                        x = ox + number();
+                        y = oy + number();
+                        add(VERB_QUAD, cx, cy, x, y);
+                        break;
+                    }
+                    case 'C': {
+                        float c1x = ox + number();
+                        float c1y = oy + number();
+                        float c2x = ox + number();
+                        float c2y = oy + number();
+                        x = ox + number();
+                        y = oy + number();
+                        add(VERB_CUBIC, c1x, c1y, c2x, c2y, x, y);
+                        break;
+                    }
+                    case 'Z':
+                        x = startX;
+                        y = startY;
+                        add(VERB_CLOSE);
+                        break;
+                }
+                skipSeparators();
+            }
+
+            if (mVerbCount == 0 || mVerbs[0] != VERB_MOVE) {
+                throw error("path data must start with a move");
+            }
+            return new ShapeOutline(id, mData,
+                    Arrays.copyOf(mVerbs, mVerbCount), Arrays.copyOf(mCoords, mCoordCount));
+        }
+
+        private void add(byte verb, float... points) {
+            if (mVerbCount == mVerbs.length) {
+                mVerbs = Arrays.copyOf(mVerbs, mVerbCount * 2);
+            }
+            mVerbs[mVerbCount++] = verb;
+
+            if (mCoordCount + points.length > mCoords.length) {
+                mCoords = Arrays.copyOf(mCoords, Math.max(mCoords.length * 2, mCoordCount + points.length));
+            }
+            System.arraycopy(points, 0, mCoords, mCoordCount, points.length);
+            mCoordCount += points.length;
+        }
+
+        private float number() {
+            skipSeparators();
+            int start = mPos;
+            if (mPos < mData.length() && (mData.charAt(mPos) == '-' || mData.charAt(mPos) == '+')) {
+                mPos++;
+            }
+            boolean dot = false;
+            while (mPos < mData.length()) {
+                char c = mData.charAt(mPos);
+                if (c >= '0' && c <= '9') {
+                    mPos++;
+                } else if (c == '.' && !dot) {
+                    dot = true;
+                    mPos++;
+                } else if ((c == 'e' || c == 'E') && mPos > start) {
+                    mPos++;
+                    if (mPos < mData.length() && (mData.charAt(mPos) == '-' || mData.charAt(mPos) == '+')) {
+                        mPos++;
+                    }
+                } else {
+                    break;
+                }
+            }
+            if (mPos == start) {
+                throw error("number expected");
+            }
+            try {
+                return Float.parseFloat(mData.substring(start, mPos));
+            } catch (NumberFormatException e) {
+                throw error("malformed number");
+            }
+        }
+
+        private void skipSeparators() {
+            while (mPos < mData.length()) {
+                char c = mData.charAt(mPos);
+                if (c == ',' || Character.isWhitespace(c)) {
+                    mPos++;
+                } else {
+                    break;
+                }
+            }
+        }
+
+        private static boolean isCommand(char c) {
+            switch (c) {
+                case 'M': case 'm':
+                case 'L': case 'l':
+                case 'H': case 'h':
+                case 'V': case 'v':
+                case 'Q': case 'q':
+                case 'C': case 'c':
+                case 'Z': case 'z':
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at " + mPos + " in \"" + mData + "\"");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.gelitenight.waveview.library;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-wide registry of {@link ShapeOutline}s by id.
+ * <br/>Path data is parsed once per id, every container referencing the same id shares the outline.
+ */
+public final class ShapeOutlines {
+    public static final ShapeOutline BOTTLE = ShapeOutline.parse("bottle",
+            "M0.5467,0.0267 L0.4475,0.0267 Q0.28,0.3533 0.3187,0.4267 L0.3187,0.9333"
+                    + " Q0.3533,1.016 0.42,0.9333 Q0.5,1.016 0.58,0.9333 Q0.6467,1.016 0.684,0.9333"
+                    + " L0.684,0.4267 Q0.7133,0.2667 0.5467,0.0267 Z");
+    public static final ShapeOutline DROP = ShapeOutline.parse("drop",
+            "M0.5,0.0267 L0.4933,0.0533 L0.2,0.5333 L0.1933,0.6333 Q0.3,0.9973 0.5,0.9333"
+                    + " Q0.7133,0.9867 0.8,0.6333 L0.8,0.5333 L0.5067,0.0533 Z");
+    public static final ShapeOutline GLASS = ShapeOutline.parse("glass",
+            "M0.5,0.1067 L0.18,0.1067 L0.2427,0.9 L0.7573,0.9 L0.82,0.1067 Z");
+
+    private static final Map<String, ShapeOutline> sOutlines = new HashMap<>();
+
+    static {
+        sOutlines.put(BOTTLE.getId(), BOTTLE);
+        sOutlines.put(DROP.getId(), DROP);
+        sOutlines.put(GLASS.getId(), GLASS);
+    }
+
+    private ShapeOutlines() {
+    }
+
+    /**
+     * @return outline registered with <code>id</code>, or null.
+     */
+    public static synchronized ShapeOutline get(String id) {
+        return sOutlines.get(id);
+    }
+
+    /**
+     * Register path data under <code>id</code>.
+     * <br/>Path data is only parsed if <code>id</code> is unknown or was registered with different data.
+     *
+     * @return outline for <code>id</code>, shared by every caller registering the same data.
+     * @throws IllegalArgumentException if path data is malformed.
+     */
+    public static synchronized ShapeOutline register(String id, String pathData) {
+        ShapeOutline outline = sOutlines.get(id);
+        if (outline == null || !outline.getPathData().equals(pathData)) {
+            outline = ShapeOutline.parse(id, pathData);
+            sOutlines.put(id, outline);
+        }
+        return outline;
+    }
+
+    public static synchronized void unregister(String id) {
+        sOutlines.remove(id);
+    }
+}
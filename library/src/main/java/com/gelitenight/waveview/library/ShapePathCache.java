@@ -0,0 +1,93 @@
+package com.gelitenight.waveview.library;
+
+import android.graphics.Matrix;
+import android.graphics.Path;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps the outline of the current {@link ShapeOutline} scaled to the view size.
+ * <br/>Every outline is compiled once into a unit path shared by all views,
+ * which is only transformed again when the size or the outline changes,
+ * so drawing a frame never allocates or recomputes geometry.
+ */
+final class ShapePathCache {
+    // unit paths compiled once per outline, dropped with the outline
+    private static final Map<ShapeOutline, Path> sUnitPaths = new WeakHashMap<>();
+
+    private final Path mPath = new Path();
+    private final Matrix mMatrix = new Matrix();
+
+    private ShapeOutline mOutline;
+    private boolean mValid;
+
+    private int mWidth;
+    private int mHeight;
+
+    /**
+     * Rebuild the outline on next access if the size differs from the one it was built for.
+     */
+    void setSize(int width, int height) {
+        if (mWidth != width || mHeight != height) {
+            mWidth = width;
+            mHeight = height;
+            mValid = false;
+        }
+    }
+
+    /**
+     * @return <code>outline</code> scaled to the current size. The path is reused by the next calls.
+     */
+    Path get(ShapeOutline outline) {
+        if (!mValid || mOutline != outline) {
+            mMatrix.setScale(mWidth, mHeight);
+            getUnitPath(outline).transform(mMatrix, mPath);
+            mOutline = outline;
+            mValid = true;
+        }
+        return mPath;
+    }
+
+    private static Path getUnitPath(ShapeOutline outline) {
+        synchronized (sUnitPaths) {
+            Path path = sUnitPaths.get(outline);
+            if (path == null) {
+                path = compile(outline);
+                sUnitPaths.put(outline, path);
+            }
+            return path;
+        }
+    }
+
+    private static Path compile(ShapeOutline outline) {
+        Path path = new Path();
+        byte[] verbs = outline.verbs;
+        float[] c = outline.coords;
+        int i = 0;
+        for (byte verb : verbs) {
+            switch (verb) {
+                case ShapeOutline.VERB_MOVE:
+                    path.moveTo(c[i], c[i + 1]);
+                    i += 2;
+                    break;
+                case ShapeOutline.VERB_LINE:
+                    path.lineTo(c[i], c[i + 1]);
+                    i += 2;
+                    break;
+                case ShapeOutline.VERB_QUAD:
+                    path.quadTo(c[i], c[i + 1], c[i + 2], c[i + 3]);
+                    i += 4;
+                    break;
+                case ShapeOutline.VERB_CUBIC:
+                    path.cubicTo(c[i], c[i + 1], c[i + 2], c[i + 3], c[i + 4], c[i + 5]);
+                    i += 6;
+                    break;
+                case ShapeOutline.VERB_CLOSE:
+                    path.close();
+                    break;
+            }
+        }
+        return path;
+    }
+}
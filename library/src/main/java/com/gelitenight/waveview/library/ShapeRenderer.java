@@ -0,0 +1,35 @@
+package com.gelitenight.waveview.library;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+/**
+ * Strategy used by {@link WaveView} to fill a path based shape with the wave shader.
+ *
+ * @see ShaderShapeRenderer
+ * @see MaskShapeRenderer
+ * @see ClipShapeRenderer
+ */
+public interface ShapeRenderer {
+    /**
+     * Called before drawing whenever the outline or the view size changed.
+     * Implementations may rebuild anything they cache here, never in {@link #draw}.
+     *
+     * @param shape  outline in view coordinates, owned by the caller
+     * @param width  view width
+     * @param height view height
+     */
+    void setShape(Path shape, int width, int height);
+
+    /**
+     * Fill <code>shape</code> with <code>wavePaint</code>, which carries the wave shader.
+     * <br/>Called once per frame, must not allocate and must leave <code>wavePaint</code> untouched.
+     */
+    void draw(Canvas canvas, Path shape, Paint wavePaint);
+
+    /**
+     * Free everything allocated in {@link #setShape}. The renderer may be used again afterwards.
+     */
+    void release();
+}
@@ -0,0 +1,231 @@
+package com.gelitenight.waveview.library;
+
+import android.view.Choreographer;
+
+/**
+ * Time based animation of a {@link WaveView}, driven by {@link Choreographer} frame callbacks:
+ * the endless wave shift and amplitude oscillation, and water level transitions.
+ * <br/>Phases advance with the frame time, so the wave speed does not depend on the frame rate.
+ * Nothing is allocated per frame. Before API 16 frames are posted every 16ms instead.
+ * <p>
+ * A running animation only requests frames while the view is visible,
+ * and continues from the same phase once the view is visible again.
+ * <p>
+ * With a target frame rate, vsync callbacks arriving before the next due frame are skipped
+ * without touching the view, so nothing is drawn for them.
+ */
+final class WaveAnimator {
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final long DEFAULT_VSYNC_PERIOD_NANOS = 16666667L;
+
+    private final WaveView mView;
+    private final FrameScheduler mFrameScheduler;
+
+    private boolean mRunning;
+    private boolean mVisible;
+    private boolean mScheduled;
+    // time of the previous frame, -1 if the next frame is the first one since start
+    private long mLastFrameTimeNanos = -1;
+    // time of the previous callback, drawn or skipped, -1 if unknown
+    private long mLastCallbackTimeNanos = -1;
+    // shortest interval seen between two callbacks
+    private long mVsyncPeriodNanos = DEFAULT_VSYNC_PERIOD_NANOS;
+    // 0 to draw every vsync
+    private long mFrameIntervalNanos;
+
+    private float mWaveSpeed = 1f;
+    private double mShiftPhase;
+
+    private float mMinAmplitudeRatio;
+    private float mMaxAmplitudeRatio;
+    private long mAmplitudePeriodNanos;
+    private double mAmplitudePhase;
+
+    private final LevelTransition mWaterLevel = new LevelTransition();
+
+    WaveAnimator(WaveView view) {
+        mView = view;
+        mFrameScheduler = FrameScheduler.create(new FrameScheduler.Callback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                WaveAnimator.this.doFrame(frameTimeNanos);
+            }
+        });
+    }
+
+    float getWaveSpeed() {
+        return mWaveSpeed;
+    }
+
+    void setWaveSpeed(float waveSpeed) {
+        mWaveSpeed = waveSpeed;
+    }
+
+    /**
+     * Oscillate the amplitude between two ratios, 0 period to stop.
+     */
+    void setAmplitudeAnimation(float minAmplitudeRatio, float maxAmplitudeRatio, long periodMillis) {
+        mMinAmplitudeRatio = minAmplitudeRatio;
+        mMaxAmplitudeRatio = maxAmplitudeRatio;
+        mAmplitudePeriodNanos = periodMillis * 1000000L;
+        mAmplitudePhase = 0;
+    }
+
+    /**
+     * @param frameRate Frames per second, 0 to draw on every vsync.
+     */
+    void setFrameRate(int frameRate) {
+        mFrameIntervalNanos = frameRate > 0 ? (long) (NANOS_PER_SECOND / frameRate) : 0;
+    }
+
+    boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * @return true while frames are needed, for the wave or for the water level.
+     */
+    private boolean isActive() {
+        return mRunning || mWaterLevel.isRunning();
+    }
+
+    /**
+     * Move the water level of the view to <code>waterLevelRatio</code>.
+     * <br/>A running transition is retargeted from where it is, instead of starting another one.
+     */
+    void animateWaterLevelTo(float waterLevelRatio, long durationMillis) {
+        if (!mWaterLevel.isRunning()) {
+            mWaterLevel.set(mView.getWaterLevelRatio());
+        }
+        mWaterLevel.animateTo(waterLevelRatio, durationMillis, System.nanoTime());
+        if (mWaterLevel.isRunning() && mVisible) {
+            schedule();
+        } else {
+            // nobody would see the transition
+            mWaterLevel.finish();
+            mView.applyWaterLevelRatio(mWaterLevel.getValue());
+        }
+    }
+
+    /**
+     * Stop a water level transition where it is.
+     */
+    void cancelWaterLevel() {
+        mWaterLevel.set(mWaterLevel.getValue());
+        if (!isActive()) {
+            unschedule();
+        }
+    }
+
+    /**
+     * Pause or resume frames according to the visibility of the view.
+     */
+    void setVisible(boolean visible) {
+        if (mVisible == visible) {
+            return;
+        }
+        mVisible = visible;
+        if (visible) {
+            // don't count the time spent hidden
+            mLastFrameTimeNanos = -1;
+            mLastCallbackTimeNanos = -1;
+            if (isActive()) {
+                schedule();
+            }
+        } else {
+            unschedule();
+            if (mWaterLevel.isRunning()) {
+                mWaterLevel.finish();
+                mView.applyWaterLevelRatio(mWaterLevel.getValue());
+            }
+        }
+    }
+
+    /**
+     * Start from the current wave shift of the view.
+     */
+    void start() {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        mShiftPhase = mView.getWaveShiftRatio();
+        mLastFrameTimeNanos = -1;
+        mLastCallbackTimeNanos = -1;
+        if (mVisible) {
+            schedule();
+        }
+    }
+
+    void stop() {
+        mRunning = false;
+        if (!isActive()) {
+            unschedule();
+        }
+    }
+
+    private void unschedule() {
+        if (mScheduled) {
+            mFrameScheduler.cancel();
+            mScheduled = false;
+        }
+    }
+
+    private void schedule() {
+        if (!mScheduled) {
+            mScheduled = true;
+            mFrameScheduler.post();
+        }
+    }
+
+    private void doFrame(long frameTimeNanos) {
+        mScheduled = false;
+        if (!isActive() || !mVisible) {
+            return;
+        }
+
+        if (mLastCallbackTimeNanos >= 0) {
+            long period = frameTimeNanos - mLastCallbackTimeNanos;
+            if (period > 0 && period < mVsyncPeriodNanos) {
+                mVsyncPeriodNanos = period;
+            }
+        }
+        mLastCallbackTimeNanos = frameTimeNanos;
+
+        // skip vsyncs until the next frame is due, within half a vsync to stay aligned
+        if (mFrameIntervalNanos > 0 && mLastFrameTimeNanos >= 0
+                && frameTimeNanos - mLastFrameTimeNanos < mFrameIntervalNanos - mVsyncPeriodNanos / 2) {
+            schedule();
+            return;
+        }
+
+        if (mRunning && mLastFrameTimeNanos >= 0) {
+            double seconds = (frameTimeNanos - mLastFrameTimeNanos) / NANOS_PER_SECOND;
+            mShiftPhase = wrap(mShiftPhase + seconds * mWaveSpeed);
+            if (mAmplitudePeriodNanos > 0) {
+                mAmplitudePhase = wrap(mAmplitudePhase
+                        + (double) (frameTimeNanos - mLastFrameTimeNanos) / mAmplitudePeriodNanos);
+            }
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+
+        if (mRunning) {
+            mView.setWaveShiftRatio((float) mShiftPhase);
+            if (mAmplitudePeriodNanos > 0) {
+                float t = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * mAmplitudePhase));
+                mView.setAmplitudeRatio(mMinAmplitudeRatio + (mMaxAmplitudeRatio - mMinAmplitudeRatio) * t);
+            }
+        }
+        if (mWaterLevel.update(frameTimeNanos)) {
+            mView.applyWaterLevelRatio(mWaterLevel.getValue());
+        }
+
+        if (isActive()) {
+            schedule();
+        }
+    }
+
+    private static double wrap(double phase) {
+        return phase - Math.floor(phase);
+    }
+}
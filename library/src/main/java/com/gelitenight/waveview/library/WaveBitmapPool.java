@@ -0,0 +1,125 @@
+package com.gelitenight.waveview.library;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import java.util.ArrayList;
+
+/**
+ * Bitmaps of evicted wave textures, kept to be overwritten by the next textures
+ * instead of allocating new ones.
+ * <br/>From API 19 a bitmap is reused for any texture fitting in its allocation,
+ * before that only for textures of the same size and config.
+ * <p>
+ * A pooled bitmap is overwritten in background, so it must not be referenced by a display list anymore:
+ * {@link WaveView} only releases a texture once the frames it records no longer draw it.
+ */
+final class WaveBitmapPool {
+    static final int DEFAULT_MAX_SIZE = 2 * 1024 * 1024;
+
+    private static final WaveBitmapPool sInstance = new WaveBitmapPool();
+
+    // oldest first
+    private final ArrayList<Bitmap> mBitmaps = new ArrayList<>();
+    private int mMaxSize = DEFAULT_MAX_SIZE;
+    private int mSize;
+
+    private WaveBitmapPool() {
+    }
+
+    static WaveBitmapPool getInstance() {
+        return sInstance;
+    }
+
+    synchronized void setMaxSize(int maxSize) {
+        mMaxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    /**
+     * @return a pooled bitmap of <code>width</code> x <code>height</code> in <code>config</code>
+     * with undefined content, or null if none fits.
+     */
+    synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        for (int i = 0; i < mBitmaps.size(); i++) {
+            Bitmap bitmap = mBitmaps.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height && bitmap.getConfig() == config) {
+                return take(i);
+            }
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            int index = findSmallestFitting(width, height, config);
+            if (index >= 0) {
+                Bitmap bitmap = take(index);
+                bitmap.reconfigure(width, height, config);
+                return bitmap;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hand <code>bitmap</code> over to the pool. The caller must not use it anymore.
+     */
+    synchronized void put(Bitmap bitmap) {
+        if (bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+        mBitmaps.add(bitmap);
+        mSize += sizeOf(bitmap);
+        trimToSize(mMaxSize);
+    }
+
+    synchronized void clear() {
+        trimToSize(0);
+    }
+
+    private void trimToSize(int maxSize) {
+        while (mSize > maxSize && !mBitmaps.isEmpty()) {
+            // drop the reference only, the last frame may still be drawn with it
+            take(0);
+        }
+    }
+
+    private Bitmap take(int index) {
+        Bitmap bitmap = mBitmaps.remove(index);
+        mSize -= sizeOf(bitmap);
+        return bitmap;
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private int findSmallestFitting(int width, int height, Bitmap.Config config) {
+        int needed = width * height * bytesPerPixel(config);
+        int best = -1;
+        int bestSize = Integer.MAX_VALUE;
+        for (int i = 0; i < mBitmaps.size(); i++) {
+            int size = mBitmaps.get(i).getAllocationByteCount();
+            if (size >= needed && size < bestSize) {
+                best = i;
+                bestSize = size;
+            }
+        }
+        return best;
+    }
+
+    private static int sizeOf(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        switch (config) {
+            case ALPHA_8:
+                return 1;
+            case RGB_565:
+            case ARGB_4444:
+                return 2;
+            default:
+                return 4;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.gelitenight.waveview.library;
+
+import java.util.Arrays;
+
+/**
+ * Draw times of the last frames of a {@link WaveView}, see {@link WaveView#setFrameStatsListener}.
+ * <br/>Times are bucketed in a histogram over a rolling window of {@link #WINDOW_SIZE} frames. Buckets are
+ * log scaled, {@link #BUCKETS_PER_DOUBLING} per doubling from 0.1 ms to about 100 ms, so a janky frame is
+ * told apart from a slightly late one. The last bucket holds every longer frame.
+ * Recording a frame never allocates.
+ * <p>
+ * The instance is owned and updated by the view, read it on the main thread only.
+ */
+public final class WaveFrameStats {
+    public static final int WINDOW_SIZE = 120;
+    public static final int BUCKETS_PER_DOUBLING = 8;
+    // fits the byte window
+    public static final int BUCKET_COUNT = 10 * BUCKETS_PER_DOUBLING + 1;
+
+    private static final long FIRST_BUCKET_NANOS = 100000L;
+    private static final long[] BUCKET_UPPER_BOUNDS = new long[BUCKET_COUNT];
+
+    static {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            BUCKET_UPPER_BOUNDS[bucket] = Math.round(
+                    FIRST_BUCKET_NANOS * Math.pow(2, (double) bucket / BUCKETS_PER_DOUBLING));
+        }
+    }
+
+    private final int[] mHistogram = new int[BUCKET_COUNT];
+    // bucket of each frame in the window, oldest overwritten first
+    private final byte[] mWindow = new byte[WINDOW_SIZE];
+    private int mWindowStart;
+    private int mWindowCount;
+
+    private long mFrameCount;
+    private long mLastDrawTimeNanos;
+    private long mMaxDrawTimeNanos;
+    private int mShaderRebuildCount;
+
+    WaveFrameStats() {
+    }
+
+    void recordFrame(long drawTimeNanos) {
+        int bucket = Arrays.binarySearch(BUCKET_UPPER_BOUNDS, drawTimeNanos);
+        // upper bounds are exclusive
+        bucket = Math.min(bucket >= 0 ? bucket + 1 : -bucket - 1, BUCKET_COUNT - 1);
+        if (mWindowCount == WINDOW_SIZE) {
+            mHistogram[mWindow[mWindowStart]]--;
+            mWindow[mWindowStart] = (byte) bucket;
+            mWindowStart = (mWindowStart + 1) % WINDOW_SIZE;
+        } else {
+            mWindow[(mWindowStart + mWindowCount) % WINDOW_SIZE] = (byte) bucket;
+            mWindowCount++;
+        }
+        mHistogram[bucket]++;
+
+        mFrameCount++;
+        mLastDrawTimeNanos = drawTimeNanos;
+        mMaxDrawTimeNanos = Math.max(mMaxDrawTimeNanos, drawTimeNanos);
+    }
+
+    void recordShaderRebuild() {
+        mShaderRebuildCount++;
+    }
+
+    /**
+     * @return frames drawn since the listener was set.
+     */
+    public long getFrameCount() {
+        return mFrameCount;
+    }
+
+    public long getLastDrawTimeNanos() {
+        return mLastDrawTimeNanos;
+    }
+
+    /**
+     * @return longest frame since the listener was set.
+     */
+    public long getMaxDrawTimeNanos() {
+        return mMaxDrawTimeNanos;
+    }
+
+    /**
+     * @return wave shaders created since the listener was set, one per texture change.
+     */
+    public int getShaderRebuildCount() {
+        return mShaderRebuildCount;
+    }
+
+    /**
+     * @return frames in the rolling window, up to {@link #WINDOW_SIZE}.
+     */
+    public int getWindowCount() {
+        return mWindowCount;
+    }
+
+    /**
+     * @return exclusive upper bound of the draw times in <code>bucket</code>, except for the last bucket
+     * which also holds every longer frame.
+     */
+    public static long getBucketUpperBoundNanos(int bucket) {
+        return BUCKET_UPPER_BOUNDS[bucket];
+    }
+
+    /**
+     * @return frames of the window whose draw time falls in <code>bucket</code>.
+     */
+    public int getBucketCount(int bucket) {
+        return mHistogram[bucket];
+    }
+
+    /**
+     * @param percentile In 0 ~ 100.
+     * @return upper bound of the bucket holding the given percentile of the window, 0 if it is empty.
+     */
+    public long getDrawTimePercentileNanos(float percentile) {
+        if (mWindowCount == 0) {
+            return 0;
+        }
+        int rank = Math.max(1, (int) Math.ceil(mWindowCount * percentile / 100f));
+        int count = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            count += mHistogram[bucket];
+            if (count >= rank) {
+                return BUCKET_UPPER_BOUNDS[bucket];
+            }
+        }
+        return BUCKET_UPPER_BOUNDS[BUCKET_COUNT - 1];
+    }
+}
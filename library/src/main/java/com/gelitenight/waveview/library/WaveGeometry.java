@@ -0,0 +1,89 @@
+package com.gelitenight.waveview.library;
+
+import android.graphics.Matrix;
+import android.graphics.Path;
+
+import com.gelitenight.waveview.library.WaveView.ShapeType;
+
+/**
+ * Geometry shared by {@link WaveView} and {@link WaveTextureView}, so both draw the same waves in the same shapes.
+ */
+final class WaveGeometry {
+    // side dots of the bottle, in pixels from the horizontal center and from the top
+    private static final int BOTTLE_DOT_OFFSET_X = 135;
+    private static final int BOTTLE_DOT_Y = 260;
+    private static final int BOTTLE_DOT_RADIUS = 5;
+
+    private WaveGeometry() {
+    }
+
+    /**
+     * @return key of the texture holding the default waves of a view, the shader matrix scales them
+     * to the current ratios.
+     */
+    static WaveTexture.Key createTextureKey(int width, int height, WaveLayer[] layers,
+                                            WaveView.TextureMode textureMode) {
+        return new WaveTexture.Key(width, height,
+                height * WaveView.DEFAULT_WATER_LEVEL_RATIO,
+                height * WaveView.DEFAULT_AMPLITUDE_RATIO,
+                width / WaveView.DEFAULT_WAVE_LENGTH_RATIO,
+                layers, textureMode);
+    }
+
+    /**
+     * Map <code>texture</code> onto a view of <code>width</code> x <code>height</code> pixels.
+     * <br/>The texture may have been created for another size while a new one is pending,
+     * so it is scaled from its own geometry.
+     */
+    static void setShaderMatrix(Matrix matrix, WaveTexture texture, int width, int height,
+                                float waveLengthRatio, float amplitudeRatio,
+                                float waveShiftRatio, float waterLevelRatio) {
+        WaveTexture.Key key = texture.key;
+        // the bitmap only holds texture rows from texture.top, move the texture water level to 0
+        matrix.setTranslate(0, texture.top - key.waterLevel);
+        // sacle shader according to wave length ratio and amplitude ratio
+        // this decides the size(wave length ratio for width, amplitude ratio for height) of waves
+        matrix.postScale(
+                waveLengthRatio * width / key.waveLength,
+                amplitudeRatio * height / key.amplitude);
+        // translate shader according to wave shift ratio and water level ratio
+        // this decides the start position(wave shift ratio for x, water level ratio for y) of waves
+        matrix.postTranslate(
+                waveShiftRatio * width,
+                (1f - waterLevelRatio) * height);
+    }
+
+    /**
+     * Add the side dots of the bottle to <code>path</code>, for a view <code>width</code> pixels wide
+     * whose top is at <code>top</code> in its parent.
+     */
+    static void addBottleDots(Path path, int width, int top) {
+        path.addCircle(width / 2 - BOTTLE_DOT_OFFSET_X, top + BOTTLE_DOT_Y, BOTTLE_DOT_RADIUS, Path.Direction.CW);
+        path.addCircle(width / 2 + BOTTLE_DOT_OFFSET_X, top + BOTTLE_DOT_Y, BOTTLE_DOT_RADIUS, Path.Direction.CW);
+    }
+
+    /**
+     * @return color of the bottle dots: the border one, or the opaque front wave color without a border.
+     */
+    static int getBottleDotColor(float borderWidth, int borderColor, int frontColor) {
+        return borderWidth > 0 ? borderColor : frontColor | 0xFF000000;
+    }
+
+    /**
+     * @return outline of a path based shape, <code>customShape</code> for CUSTOM, null for CIRCLE and SQUARE.
+     */
+    static ShapeOutline getShapeOutline(ShapeType shapeType, ShapeOutline customShape) {
+        switch (shapeType) {
+            case BOTTLE:
+                return ShapeOutlines.BOTTLE;
+            case DROP:
+                return ShapeOutlines.DROP;
+            case GLASS:
+                return ShapeOutlines.GLASS;
+            case CUSTOM:
+                return customShape;
+            default:
+                return null;
+        }
+    }
+}
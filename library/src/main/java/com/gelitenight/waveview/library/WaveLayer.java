@@ -0,0 +1,98 @@
+package com.gelitenight.waveview.library;
+
+/**
+ * One wave of a {@link WaveView}. Layers are composited back to front into a single texture,
+ * so the draw cost does not depend on the number of layers.
+ * <br/>Every layer repeats within the wave length of the view and moves with the view's wave shift.
+ */
+public final class WaveLayer {
+    // WaveView.DEFAULT_BEHIND_WAVE_COLOR and DEFAULT_FRONT_WAVE_COLOR, without platform classes
+    static final int DEFAULT_BEHIND_COLOR = 0x280000FF;
+    static final int DEFAULT_FRONT_COLOR = 0x3C0000FF;
+
+    private final float mAmplitudeRatio;
+    private final int mWaveCount;
+    private final float mPhase;
+    private final int mColor;
+
+    /**
+     * @param amplitudeRatio Amplitude relative to the view's amplitude, 1 for the same.
+     * @param waveCount      Waves of this layer per wave length of the view, 1 or more.
+     * @param phase          Shift of this layer in its own wave lengths, 0 ~ 1.
+     * @param color          ARGB color of the layer.
+     */
+    public WaveLayer(float amplitudeRatio, int waveCount, float phase, int color) {
+        if (waveCount < 1) {
+            throw new IllegalArgumentException("waveCount must be 1 or more: " + waveCount);
+        }
+        mAmplitudeRatio = amplitudeRatio;
+        mWaveCount = waveCount;
+        mPhase = phase;
+        mColor = color;
+    }
+
+    public float getAmplitudeRatio() {
+        return mAmplitudeRatio;
+    }
+
+    public int getWaveCount() {
+        return mWaveCount;
+    }
+
+    public float getPhase() {
+        return mPhase;
+    }
+
+    public int getColor() {
+        return mColor;
+    }
+
+    /**
+     * @return the two default layers, the front wave shifted by a quarter wave length.
+     */
+    static WaveLayer[] createDefaults(int behindColor, int frontColor) {
+        return new WaveLayer[]{
+                new WaveLayer(1f, 1, 0f, behindColor),
+                new WaveLayer(1f, 1, 0.25f, frontColor)
+        };
+    }
+
+    /**
+     * @return largest absolute amplitude ratio of <code>layers</code>.
+     */
+    static float maxAmplitudeRatio(WaveLayer[] layers) {
+        float max = 0f;
+        for (WaveLayer layer : layers) {
+            max = Math.max(max, Math.abs(layer.mAmplitudeRatio));
+        }
+        return max;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        WaveLayer that = (WaveLayer) o;
+
+        if (Float.compare(that.mAmplitudeRatio, mAmplitudeRatio) != 0) return false;
+        if (mWaveCount != that.mWaveCount) return false;
+        if (Float.compare(that.mPhase, mPhase) != 0) return false;
+        return mColor == that.mColor;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Float.floatToIntBits(mAmplitudeRatio);
+        result = 31 * result + mWaveCount;
+        result = 31 * result + Float.floatToIntBits(mPhase);
+        result = 31 * result + mColor;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "WaveLayer{amplitudeRatio=" + mAmplitudeRatio + ", waveCount=" + mWaveCount
+                + ", phase=" + mPhase + ", color=#" + Integer.toHexString(mColor) + '}';
+    }
+}
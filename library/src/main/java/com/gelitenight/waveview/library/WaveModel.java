@@ -0,0 +1,160 @@
+package com.gelitenight.waveview.library;
+
+/**
+ * Wave parameters of a view, as ratios of its size, and the evaluation of wave heights.
+ * <br/>Free of platform classes, so it is shared by {@link WaveView}, the texture generator
+ * and {@link WaveRasterizer}, and runs on a plain JVM.
+ * <p>
+ * Heights are evaluated in batches into caller provided arrays with an interpolated sine table,
+ * without allocating.
+ */
+public final class WaveModel {
+    public static final float DEFAULT_AMPLITUDE_RATIO = 0.05f;
+    public static final float DEFAULT_WATER_LEVEL_RATIO = 0.5f;
+    public static final float DEFAULT_WAVE_LENGTH_RATIO = 1.0f;
+    public static final float DEFAULT_WAVE_SHIFT_RATIO = 0.0f;
+
+    // entries per turn, a power of two so wrapping is a mask
+    private static final int SINE_TABLE_SIZE = 4096;
+    // one more entry to interpolate the last one without wrapping
+    private static final float[] SINE_TABLE = new float[SINE_TABLE_SIZE + 1];
+
+    static {
+        for (int i = 0; i <= SINE_TABLE_SIZE; i++) {
+            SINE_TABLE[i] = (float) Math.sin(2 * Math.PI * i / SINE_TABLE_SIZE);
+        }
+    }
+
+    private float mAmplitudeRatio = DEFAULT_AMPLITUDE_RATIO;
+    private float mWaveLengthRatio = DEFAULT_WAVE_LENGTH_RATIO;
+    private float mWaterLevelRatio = DEFAULT_WATER_LEVEL_RATIO;
+    private float mWaveShiftRatio = DEFAULT_WAVE_SHIFT_RATIO;
+    // back to front
+    private WaveLayer[] mLayers = WaveLayer.createDefaults(
+            WaveLayer.DEFAULT_BEHIND_COLOR, WaveLayer.DEFAULT_FRONT_COLOR);
+    private float mMaxLayerAmplitudeRatio = WaveLayer.maxAmplitudeRatio(mLayers);
+
+    public float getAmplitudeRatio() {
+        return mAmplitudeRatio;
+    }
+
+    public void setAmplitudeRatio(float amplitudeRatio) {
+        mAmplitudeRatio = amplitudeRatio;
+    }
+
+    public float getWaveLengthRatio() {
+        return mWaveLengthRatio;
+    }
+
+    public void setWaveLengthRatio(float waveLengthRatio) {
+        mWaveLengthRatio = waveLengthRatio;
+    }
+
+    public float getWaterLevelRatio() {
+        return mWaterLevelRatio;
+    }
+
+    public void setWaterLevelRatio(float waterLevelRatio) {
+        mWaterLevelRatio = waterLevelRatio;
+    }
+
+    public float getWaveShiftRatio() {
+        return mWaveShiftRatio;
+    }
+
+    public void setWaveShiftRatio(float waveShiftRatio) {
+        mWaveShiftRatio = waveShiftRatio;
+    }
+
+    /**
+     * @return the layers, not to be modified.
+     */
+    WaveLayer[] getLayers() {
+        return mLayers;
+    }
+
+    /**
+     * @param layers At least one layer, back to front. The array is copied.
+     */
+    public void setLayers(WaveLayer... layers) {
+        if (layers.length == 0) {
+            throw new IllegalArgumentException("at least one wave layer is needed");
+        }
+        mLayers = layers.clone();
+        mMaxLayerAmplitudeRatio = WaveLayer.maxAmplitudeRatio(mLayers);
+    }
+
+    public int getLayerCount() {
+        return mLayers.length;
+    }
+
+    public WaveLayer getLayer(int index) {
+        return mLayers[index];
+    }
+
+    /**
+     * @return color of the front layer.
+     */
+    public int getFrontColor() {
+        return mLayers[mLayers.length - 1].getColor();
+    }
+
+    /**
+     * @return largest distance of a crest from the water level, as a ratio of the height.
+     */
+    public float getBandAmplitudeRatio() {
+        return mAmplitudeRatio * mMaxLayerAmplitudeRatio;
+    }
+
+    /**
+     * Evaluate the crests of layer <code>index</code> for every column of a view of the given size.
+     *
+     * @param out Receives the crest of each column, in pixels from the top, at least width long.
+     */
+    public void evaluate(int index, float[] out, int width, int height) {
+        evaluate(mLayers[index], out, width,
+                (1f - mWaterLevelRatio) * height,
+                mAmplitudeRatio * height,
+                mWaveLengthRatio * width,
+                mWaveShiftRatio * width);
+    }
+
+    /**
+     * Evaluate y=h+A·a·sin(2π(n(x-s)/λ+φ)) for x in [0, width), for a layer of amplitude ratio a,
+     * wave count n and phase φ.
+     *
+     * @param out        Receives the crests, at least width long.
+     * @param waterLevel h, in pixels from the top.
+     * @param amplitude  A, in pixels.
+     * @param waveLength λ, in pixels.
+     * @param shift      s, in pixels.
+     */
+    public static void evaluate(WaveLayer layer, float[] out, int width,
+                                float waterLevel, float amplitude, float waveLength, float shift) {
+        double step = waveLength != 0 ? layer.getWaveCount() / (double) waveLength : 0;
+        sineWave(out, width, waterLevel, amplitude * layer.getAmplitudeRatio(),
+                layer.getPhase() - shift * step, step);
+    }
+
+    /**
+     * out[i] = base + amplitude * sin(2π(start + i * step)) for i in [0, count), phases in turns.
+     */
+    static void sineWave(float[] out, int count, float base, float amplitude, double start, double step) {
+        for (int i = 0; i < count; i++) {
+            out[i] = base + amplitude * sinTurns(start + i * step);
+        }
+    }
+
+    /**
+     * @return sin(2π·turns), linearly interpolated from the table.
+     */
+    static float sinTurns(double turns) {
+        double position = (turns - Math.floor(turns)) * SINE_TABLE_SIZE;
+        int index = (int) position;
+        float fraction = (float) (position - index);
+        // position may round up to the table size
+        index &= SINE_TABLE_SIZE - 1;
+        float from = SINE_TABLE[index];
+        return from + (SINE_TABLE[index + 1] - from) * fraction;
+    }
+}
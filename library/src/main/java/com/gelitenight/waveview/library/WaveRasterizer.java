@@ -0,0 +1,516 @@
+package com.gelitenight.waveview.library;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Renders a complete wave frame, as {@link WaveView} draws it, into an ARGB buffer without any
+ * platform class, e.g. for thumbnails and exports off the main thread, or to run on a plain JVM.
+ * <br/>Waves are computed per pixel with antialiased crests, then masked by the shape with
+ * antialiased edges, and the border is composited over them. Colors are non-premultiplied
+ * ARGB, as expected by <code>Bitmap.setPixels</code>.
+ * <p>
+ * Large frames can be rendered in parallel by row bands with a {@link ForkJoinPool},
+ * which exists on Android from API 21. A rasterizer must not be modified while rendering,
+ * rendering itself only reads it and may run on several threads at once.
+ */
+public final class WaveRasterizer {
+    // rows below which a band is not split anymore
+    private static final int ROWS_PER_TASK = 32;
+    // sub-scanlines per row for antialiased outline edges
+    private static final int SUBSAMPLES = 4;
+    // segments per curve when flattening outlines
+    private static final int CURVE_SEGMENTS = 16;
+
+    private static final int SHAPE_CIRCLE = 0;
+    private static final int SHAPE_SQUARE = 1;
+    private static final int SHAPE_OUTLINE = 2;
+
+    // same defaults as WaveView
+    private final WaveModel mModel = new WaveModel();
+    private int mShape = SHAPE_CIRCLE;
+    private ShapeOutline mOutline;
+    private float mBorderWidth;
+    private int mBorderColor;
+
+    /**
+     * @return ratios and layers of the rendered waves.
+     */
+    public WaveModel getModel() {
+        return mModel;
+    }
+
+    public void setAmplitudeRatio(float amplitudeRatio) {
+        mModel.setAmplitudeRatio(amplitudeRatio);
+    }
+
+    public void setWaveLengthRatio(float waveLengthRatio) {
+        mModel.setWaveLengthRatio(waveLengthRatio);
+    }
+
+    public void setWaterLevelRatio(float waterLevelRatio) {
+        mModel.setWaterLevelRatio(waterLevelRatio);
+    }
+
+    public void setWaveShiftRatio(float waveShiftRatio) {
+        mModel.setWaveShiftRatio(waveShiftRatio);
+    }
+
+    public void setWaveColor(int behindWaveColor, int frontWaveColor) {
+        mModel.setLayers(WaveLayer.createDefaults(behindWaveColor, frontWaveColor));
+    }
+
+    /**
+     * @see WaveView#setWaveLayers
+     */
+    public void setWaveLayers(WaveLayer... layers) {
+        mModel.setLayers(layers);
+    }
+
+    /**
+     * Use the CIRCLE shape of {@link WaveView}, the default.
+     */
+    public void setCircle() {
+        mShape = SHAPE_CIRCLE;
+        mOutline = null;
+    }
+
+    /**
+     * Use the SQUARE shape of {@link WaveView}.
+     */
+    public void setSquare() {
+        mShape = SHAPE_SQUARE;
+        mOutline = null;
+    }
+
+    /**
+     * Use a path based shape, e.g. {@link ShapeOutlines#BOTTLE} or a custom outline.
+     */
+    public void setOutline(ShapeOutline outline) {
+        if (outline == null) {
+            throw new IllegalArgumentException("outline is null");
+        }
+        mShape = SHAPE_OUTLINE;
+        mOutline = outline;
+    }
+
+    public void setBorder(int width, int color) {
+        mBorderWidth = width;
+        mBorderColor = color;
+    }
+
+    /**
+     * Render a frame on the calling thread.
+     *
+     * @param pixels Receives the frame, row major, at least width * height long.
+     */
+    public void render(int[] pixels, int width, int height) {
+        Frame frame = new Frame(width, height);
+        frame.renderRows(pixels, 0, height);
+    }
+
+    /**
+     * Render a frame in <code>pool</code>, split in bands of rows. Returns once the frame is complete.
+     *
+     * @param pixels Receives the frame, row major, at least width * height long.
+     */
+    public void render(int[] pixels, int width, int height, ForkJoinPool pool) {
+        Frame frame = new Frame(width, height);
+        pool.invoke(new RowBand(frame, pixels, 0, height));
+    }
+
+    private static final class RowBand extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Frame mFrame;
+        private final int[] mPixels;
+        private final int mFrom;
+        private final int mTo;
+
+        RowBand(Frame frame, int[] pixels, int from, int to) {
+            mFrame = frame;
+            mPixels = pixels;
+            mFrom = from;
+            mTo = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (mTo - mFrom <= ROWS_PER_TASK) {
+                mFrame.renderRows(mPixels, mFrom, mTo);
+                return;
+            }
+            int middle = (mFrom + mTo) >>> 1;
+            invokeAll(new RowBand(mFrame, mPixels, mFrom, middle),
+                    new RowBand(mFrame, mPixels, middle, mTo));
+        }
+    }
+
+    /**
+     * Everything shared by the rows of one frame, computed once and only read while rendering rows.
+     */
+    private final class Frame {
+        final int width;
+        final int height;
+        final WaveLayer[] layers;
+        // crest of every layer per column, in pixels from the top of the frame
+        final float[][] crestY;
+        final float borderWidth;
+        final int borderColor;
+        final int shape;
+        // flattened outline edges, x0, y0, x1, y1 per edge, in pixels
+        final float[] edges;
+        final int edgeCount;
+
+        Frame(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.layers = mModel.getLayers();
+            this.borderWidth = mBorderWidth;
+            this.borderColor = mBorderColor;
+            this.shape = mShape;
+
+            // same mapping as the shader matrix of WaveView
+            crestY = new float[layers.length][width];
+            for (int i = 0; i < layers.length; i++) {
+                mModel.evaluate(i, crestY[i], width, height);
+            }
+
+            if (shape == SHAPE_OUTLINE) {
+                edges = flatten(mOutline, width, height);
+                edgeCount = edges.length / 4;
+            } else {
+                edges = null;
+                edgeCount = 0;
+            }
+        }
+
+        void renderRows(int[] pixels, int from, int to) {
+            float[] shapeCoverage = new float[width];
+            float[] crossings = shape == SHAPE_OUTLINE ? new float[edgeCount] : null;
+            int[] windings = shape == SHAPE_OUTLINE ? new int[edgeCount] : null;
+            boolean outlineBorder = shape == SHAPE_OUTLINE && borderWidth > 0;
+            float[] borderRow = outlineBorder ? new float[width] : null;
+
+            for (int y = from; y < to; y++) {
+                switch (shape) {
+                    case SHAPE_CIRCLE:
+                        circleCoverage(shapeCoverage, y);
+                        break;
+                    case SHAPE_SQUARE:
+                        squareCoverage(shapeCoverage, y);
+                        break;
+                    default:
+                        outlineCoverage(shapeCoverage, y, crossings, windings);
+                        break;
+                }
+                if (outlineBorder) {
+                    outlineBorderCoverage(borderRow, y);
+                }
+
+                int offset = y * width;
+                for (int x = 0; x < width; x++) {
+                    int color = 0;
+                    float coverage = shapeCoverage[x];
+                    if (coverage > 0f) {
+                        color = scaleAlpha(WaveTextureGenerator.composite(layers, crestY, x, y), coverage);
+                    }
+                    if (borderWidth > 0) {
+                        float border = outlineBorder ? borderRow[x] : borderCoverage(x, y);
+                        if (border > 0f) {
+                            color = over(scaleAlpha(borderColor, border), color);
+                        }
+                    }
+                    pixels[offset + x] = color;
+                }
+            }
+        }
+
+        private void circleCoverage(float[] coverage, int y) {
+            float cx = width / 2f;
+            float cy = height / 2f;
+            float radius = width / 2f - borderWidth;
+            float dy = y + 0.5f - cy;
+            for (int x = 0; x < width; x++) {
+                float dx = x + 0.5f - cx;
+                coverage[x] = clamp01(radius + 0.5f - (float) Math.sqrt(dx * dx + dy * dy));
+            }
+        }
+
+        private void squareCoverage(float[] coverage, int y) {
+            float rowCoverage = overlap(y, borderWidth, height - borderWidth);
+            for (int x = 0; x < width; x++) {
+                coverage[x] = rowCoverage * overlap(x, borderWidth, width - borderWidth);
+            }
+        }
+
+        /**
+         * Nonzero winding scanline fill, averaged over sub-scanlines, with fractional span ends.
+         */
+        private void outlineCoverage(float[] coverage, int y, float[] crossings, int[] windings) {
+            Arrays.fill(coverage, 0f);
+            float weight = 1f / SUBSAMPLES;
+            for (int s = 0; s < SUBSAMPLES; s++) {
+                float sampleY = y + (s + 0.5f) / SUBSAMPLES;
+                int count = 0;
+                for (int e = 0; e < edgeCount; e++) {
+                    float y0 = edges[e * 4 + 1];
+                    float y1 = edges[e * 4 + 3];
+                    if ((y0 <= sampleY) == (y1 <= sampleY)) {
+                        continue;
+                    }
+                    float x0 = edges[e * 4];
+                    float x1 = edges[e * 4 + 2];
+                    float x = x0 + (sampleY - y0) * (x1 - x0) / (y1 - y0);
+                    int winding = y1 > y0 ? 1 : -1;
+                    // insertion sort by x, few crossings per scanline
+                    int i = count++;
+                    while (i > 0 && crossings[i - 1] > x) {
+                        crossings[i] = crossings[i - 1];
+                        windings[i] = windings[i - 1];
+                        i--;
+                    }
+                    crossings[i] = x;
+                    windings[i] = winding;
+                }
+
+                int winding = 0;
+                for (int i = 0; i < count - 1; i++) {
+                    winding += windings[i];
+                    if (winding != 0) {
+                        addSpan(coverage, crossings[i], crossings[i + 1], weight);
+                    }
+                }
+            }
+        }
+
+        private void addSpan(float[] coverage, float left, float right, float weight) {
+            left = Math.max(0f, left);
+            right = Math.min(width, right);
+            if (left >= right) {
+                return;
+            }
+            int first = (int) left;
+            int last = Math.min(width - 1, (int) Math.ceil(right) - 1);
+            if (first == last) {
+                coverage[first] += (right - left) * weight;
+                return;
+            }
+            coverage[first] += (first + 1 - left) * weight;
+            for (int x = first + 1; x < last; x++) {
+                coverage[x] += weight;
+            }
+            coverage[last] += (right - last) * weight;
+        }
+
+        /**
+         * Border of an outline along row <code>y</code>. Only the edges within reach of the row are measured,
+         * each over the columns it can reach, instead of every edge for every pixel.
+         */
+        private void outlineBorderCoverage(float[] coverage, int y) {
+            float halfWidth = borderWidth / 2f;
+            // farthest distance from an edge still covering part of a pixel
+            float reach = halfWidth + 0.5f;
+            float py = y + 0.5f;
+            Arrays.fill(coverage, Float.MAX_VALUE);
+            for (int e = 0; e < edgeCount; e++) {
+                float x0 = edges[e * 4];
+                float y0 = edges[e * 4 + 1];
+                float x1 = edges[e * 4 + 2];
+                float y1 = edges[e * 4 + 3];
+                if (Math.min(y0, y1) - reach >= py || Math.max(y0, y1) + reach <= py) {
+                    continue;
+                }
+                int first = Math.max(0, (int) Math.floor(Math.min(x0, x1) - reach - 0.5f));
+                int last = Math.min(width - 1, (int) Math.ceil(Math.max(x0, x1) + reach - 0.5f));
+                for (int x = first; x <= last; x++) {
+                    coverage[x] = Math.min(coverage[x], segmentDistance(x + 0.5f, py, x0, y0, x1, y1));
+                }
+            }
+            for (int x = 0; x < width; x++) {
+                coverage[x] = clamp01(halfWidth + 0.5f - coverage[x]);
+            }
+        }
+
+        /**
+         * Border of the circle and square shapes, outlines use {@link #outlineBorderCoverage}.
+         */
+        private float borderCoverage(int x, int y) {
+            float halfWidth = borderWidth / 2f;
+            switch (shape) {
+                case SHAPE_CIRCLE: {
+                    float dx = x + 0.5f - width / 2f;
+                    float dy = y + 0.5f - height / 2f;
+                    float radius = (width - borderWidth) / 2f - 1f;
+                    float distance = Math.abs((float) Math.sqrt(dx * dx + dy * dy) - radius);
+                    return clamp01(halfWidth + 0.5f - distance);
+                }
+                case SHAPE_SQUARE: {
+                    float left = halfWidth;
+                    float top = halfWidth;
+                    float right = width - halfWidth - 0.5f;
+                    float bottom = height - halfWidth - 0.5f;
+                    float outer = overlap(x, left - halfWidth, right + halfWidth)
+                            * overlap(y, top - halfWidth, bottom + halfWidth);
+                    float inner = overlap(x, left + halfWidth, right - halfWidth)
+                            * overlap(y, top + halfWidth, bottom - halfWidth);
+                    return clamp01(outer - inner);
+                }
+                default:
+                    return 0f;
+            }
+        }
+    }
+
+    /**
+     * @return edges of <code>outline</code> scaled to the frame, x0, y0, x1, y1 per edge,
+     * every subpath closed.
+     */
+    static float[] flatten(ShapeOutline outline, float width, float height) {
+        EdgeList edges = new EdgeList();
+        byte[] verbs = outline.verbs;
+        float[] c = outline.coords;
+        float startX = 0;
+        float startY = 0;
+        float x = 0;
+        float y = 0;
+        int i = 0;
+        for (byte verb : verbs) {
+            switch (verb) {
+                case ShapeOutline.VERB_MOVE:
+                    edges.add(x, y, startX, startY);
+                    x = startX = c[i] * width;
+                    y = startY = c[i + 1] * height;
+                    i += 2;
+                    break;
+                case ShapeOutline.VERB_LINE: {
+                    float x1 = c[i] * width;
+                    float y1 = c[i + 1] * height;
+                    edges.add(x, y, x1, y1);
+                    x = x1;
+                    y = y1;
+                    i += 2;
+                    break;
+                }
+                case ShapeOutline.VERB_QUAD: {
+                    float cx = c[i] * width;
+                    float cy = c[i + 1] * height;
+                    float x1 = c[i + 2] * width;
+                    float y1 = c[i + 3] * height;
+                    float px = x;
+                    float py = y;
+                    for (int s = 1; s <= CURVE_SEGMENTS; s++) {
+                        float t = (float) s / CURVE_SEGMENTS;
+                        float u = 1f - t;
+                        float qx = u * u * x + 2 * u * t * cx + t * t * x1;
+                        float qy = u * u * y + 2 * u * t * cy + t * t * y1;
+                        edges.add(px, py, qx, qy);
+                        px = qx;
+                        py = qy;
+                    }
+                    x = x1;
+                    y = y1;
+                    i += 4;
+                    break;
+                }
+                case ShapeOutline.VERB_CUBIC: {
+                    float c1x = c[i] * width;
+                    float c1y = c[i + 1] * height;
+                    float c2x = c[i + 2] * width;
+                    float c2y = c[i + 3] * height;
+                    float x1 = c[i + 4] * width;
+                    float y1 = c[i + 5] * height;
+                    float px = x;
+                    float py = y;
+                    for (int s = 1; s <= CURVE_SEGMENTS; s++) {
+                        float t = (float) s / CURVE_SEGMENTS;
+                        float u = 1f - t;
+                        float qx = u * u * u * x + 3 * u * u * t * c1x + 3 * u * t * t * c2x + t * t * t * x1;
+                        float qy = u * u * u * y + 3 * u * u * t * c1y + 3 * u * t * t * c2y + t * t * t * y1;
+                        edges.add(px, py, qx, qy);
+                        px = qx;
+                        py = qy;
+                    }
+                    x = x1;
+                    y = y1;
+                    i += 6;
+                    break;
+                }
+                case ShapeOutline.VERB_CLOSE:
+                    edges.add(x, y, startX, startY);
+                    x = startX;
+                    y = startY;
+                    break;
+            }
+        }
+        edges.add(x, y, startX, startY);
+        return edges.toArray();
+    }
+
+    private static final class EdgeList {
+        private float[] mCoords = new float[64];
+        private int mSize;
+
+        void add(float x0, float y0, float x1, float y1) {
+            if (x0 == x1 && y0 == y1) {
+                return;
+            }
+            if (mSize + 4 > mCoords.length) {
+                mCoords = Arrays.copyOf(mCoords, mCoords.length * 2);
+            }
+            mCoords[mSize++] = x0;
+            mCoords[mSize++] = y0;
+            mCoords[mSize++] = x1;
+            mCoords[mSize++] = y1;
+        }
+
+        float[] toArray() {
+            return Arrays.copyOf(mCoords, mSize);
+        }
+    }
+
+    /**
+     * @return part of the pixel [p, p + 1) inside [min, max].
+     */
+    private static float overlap(int p, float min, float max) {
+        return clamp01(Math.min(p + 1, max) - Math.max(p, min));
+    }
+
+    private static float segmentDistance(float px, float py, float x0, float y0, float x1, float y1) {
+        float dx = x1 - x0;
+        float dy = y1 - y0;
+        float t = ((px - x0) * dx + (py - y0) * dy) / (dx * dx + dy * dy);
+        t = clamp01(t);
+        float ex = x0 + t * dx - px;
+        float ey = y0 + t * dy - py;
+        return (float) Math.sqrt(ex * ex + ey * ey);
+    }
+
+    private static int scaleAlpha(int color, float coverage) {
+        int alpha = (int) ((color >>> 24) * coverage + 0.5f);
+        return (alpha << 24) | (color & 0xFFFFFF);
+    }
+
+    /**
+     * Composite non-premultiplied <code>front</code> over <code>behind</code>.
+     */
+    private static int over(int front, int behind) {
+        float frontAlpha = (front >>> 24) / 255f;
+        float behindAlpha = (behind >>> 24) / 255f;
+        float alpha = frontAlpha + behindAlpha * (1f - frontAlpha);
+        if (alpha <= 0f) {
+            return 0;
+        }
+        float frontWeight = frontAlpha / alpha;
+        float behindWeight = 1f - frontWeight;
+        int r = (int) (((front >> 16) & 0xFF) * frontWeight + ((behind >> 16) & 0xFF) * behindWeight + 0.5f);
+        int g = (int) (((front >> 8) & 0xFF) * frontWeight + ((behind >> 8) & 0xFF) * behindWeight + 0.5f);
+        int b = (int) ((front & 0xFF) * frontWeight + (behind & 0xFF) * behindWeight + 0.5f);
+        return ((int) (alpha * 255f + 0.5f) << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    private static float clamp01(float value) {
+        return value <= 0f ? 0f : value >= 1f ? 1f : value;
+    }
+}
@@ -0,0 +1,141 @@
+package com.gelitenight.waveview.library;
+
+import android.graphics.Bitmap;
+
+import com.gelitenight.waveview.library.WaveView.TextureMode;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Wave texture of {@link WaveView}, shared through {@link WaveTextureCache}
+ * by every view needing the same waves.
+ */
+final class WaveTexture {
+    final Key key;
+    final Bitmap bitmap;
+    // texture row of the full-height wave texture stored in the first row of the bitmap
+    final int top;
+    final int byteCount;
+
+    // number of views using the texture, guarded by WaveTextureCache
+    int refCount;
+
+    private WaveTexture(Key key, Bitmap bitmap, int top) {
+        this.key = key;
+        this.bitmap = bitmap;
+        this.top = top;
+        this.byteCount = bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    /**
+     * Synthesize the waves described by <code>key</code> and upload them into a new bitmap.
+     */
+    static WaveTexture create(Key key) {
+        WaveTrace.begin(WaveTrace.SYNTHESIZE_TEXTURE);
+        try {
+            return synthesize(key);
+        } finally {
+            WaveTrace.end();
+        }
+    }
+
+    private static WaveTexture synthesize(Key key) {
+        final int width = key.width;
+        final int top;
+        final int rows;
+        if (key.textureMode == TextureMode.FULL) {
+            top = 0;
+            rows = key.height;
+        } else {
+            // waves repeat every wave length, keep one transparent row above and one solid row below them
+            // and let the clamp stretch those rows over the rest of the view
+            float bandAmplitude = key.amplitude * WaveLayer.maxAmplitudeRatio(key.layers);
+            top = Math.max(0, WaveTextureGenerator.bandTop(key.waterLevel, bandAmplitude) - 1);
+            rows = Math.min(key.height, WaveTextureGenerator.bandBottom(key.waterLevel, bandAmplitude) + 1) - top;
+        }
+
+        // synthesize all waves in one buffer and upload it at once
+        Bitmap bitmap;
+        if (key.textureMode == TextureMode.ALPHA_STRIP) {
+            bitmap = obtainBitmap(width, rows, Bitmap.Config.ALPHA_8);
+            byte[] alpha = new byte[bitmap.getRowBytes() * rows];
+            WaveTextureGenerator.generateAlpha(alpha, bitmap.getRowBytes(), width, top, rows,
+                    key.waterLevel, key.amplitude, key.waveLength,
+                    key.layers);
+            bitmap.copyPixelsFromBuffer(ByteBuffer.wrap(alpha));
+        } else {
+            int[] pixels = new int[width * rows];
+            WaveTextureGenerator.generate(pixels, width, top, rows,
+                    key.waterLevel, key.amplitude, key.waveLength,
+                    key.layers);
+            bitmap = obtainBitmap(width, rows, Bitmap.Config.ARGB_8888);
+            bitmap.setPixels(pixels, 0, width, 0, 0, width, rows);
+        }
+        return new WaveTexture(key, bitmap, top);
+    }
+
+    /**
+     * @return a bitmap from {@link WaveBitmapPool} if one fits, a new one otherwise.
+     */
+    private static Bitmap obtainBitmap(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = WaveBitmapPool.getInstance().get(width, height, config);
+        if (bitmap == null) {
+            bitmap = Bitmap.createBitmap(width, height, config);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Everything the texture content depends on.
+     */
+    static final class Key {
+        final int width;
+        final int height;
+        final float waterLevel;
+        final float amplitude;
+        final float waveLength;
+        // back to front, never modified
+        final WaveLayer[] layers;
+        final TextureMode textureMode;
+
+        Key(int width, int height, float waterLevel, float amplitude, float waveLength,
+            WaveLayer[] layers, TextureMode textureMode) {
+            this.width = width;
+            this.height = height;
+            this.waterLevel = waterLevel;
+            this.amplitude = amplitude;
+            this.waveLength = waveLength;
+            this.layers = layers;
+            this.textureMode = textureMode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key that = (Key) o;
+
+            if (width != that.width) return false;
+            if (height != that.height) return false;
+            if (Float.compare(that.waterLevel, waterLevel) != 0) return false;
+            if (Float.compare(that.amplitude, amplitude) != 0) return false;
+            if (Float.compare(that.waveLength, waveLength) != 0) return false;
+            if (!Arrays.equals(layers, that.layers)) return false;
+            return textureMode == that.textureMode;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = width;
+            result = 31 * result + height;
+            result = 31 * result + Float.floatToIntBits(waterLevel);
+            result = 31 * result + Float.floatToIntBits(amplitude);
+            result = 31 * result + Float.floatToIntBits(waveLength);
+            result = 31 * result + Arrays.hashCode(layers);
+            result = 31 * result + textureMode.hashCode();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.gelitenight.waveview.library;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Process-wide cache of wave textures shared by every {@link WaveView}.
+ * <br/>Textures are reference counted, those no view uses anymore are kept in least recently used
+ * order and evicted when the cache grows over its maximum size or when the system is low on memory.
+ */
+public final class WaveTextureCache implements ComponentCallbacks2 {
+    public static final int DEFAULT_MAX_SIZE = 4 * 1024 * 1024;
+
+    private static WaveTextureCache sInstance;
+
+    // synthesizes textures off the main thread, one at a time
+    private static final Executor sWorker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "WaveTextureWorker");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    // in access order, eldest first
+    private final LinkedHashMap<WaveTexture.Key, WaveTexture> mTextures = new LinkedHashMap<>(16, 0.75f, true);
+    private int mMaxSize = DEFAULT_MAX_SIZE;
+    private int mSize;
+
+    private WaveTextureCache() {
+    }
+
+    /**
+     * @return the cache of the process, listening to memory trims of the application.
+     */
+    public static synchronized WaveTextureCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new WaveTextureCache();
+            context.getApplicationContext().registerComponentCallbacks(sInstance);
+        }
+        return sInstance;
+    }
+
+    public synchronized int getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * Set the size above which unused textures are evicted.
+     *
+     * @param maxSize In bytes. Default to be 4 MB. Textures in use are never evicted, so the cache may
+     *                temporarily exceed it.
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        mMaxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    /**
+     * @return size of all cached textures in bytes, used or not.
+     */
+    public synchronized int getSize() {
+        return mSize;
+    }
+
+    /**
+     * Evict unused textures, least recently used first, until the cache is not larger than <code>maxSize</code>.
+     */
+    public synchronized void trimToSize(int maxSize) {
+        Iterator<WaveTexture> iterator = mTextures.values().iterator();
+        while (mSize > maxSize && iterator.hasNext()) {
+            WaveTexture texture = iterator.next();
+            if (texture.refCount == 0) {
+                iterator.remove();
+                mSize -= texture.byteCount;
+                // let the next texture reuse the allocation
+                WaveBitmapPool.getInstance().put(texture.bitmap);
+            }
+        }
+    }
+
+    /**
+     * Evict every texture no view uses.
+     */
+    public void evictUnused() {
+        trimToSize(0);
+    }
+
+    /**
+     * Set the size of the pool keeping bitmaps of evicted textures for reuse.
+     *
+     * @param maxSize In bytes. Default to be 2 MB, 0 to disable reuse.
+     */
+    public void setPoolMaxSize(int maxSize) {
+        WaveBitmapPool.getInstance().setMaxSize(maxSize);
+    }
+
+    /**
+     * @return cached texture for <code>key</code>, or null without creating it.
+     * A returned texture must be given back with {@link #release}.
+     */
+    synchronized WaveTexture acquireCached(WaveTexture.Key key) {
+        WaveTexture texture = mTextures.get(key);
+        if (texture != null) {
+            texture.refCount++;
+        }
+        return texture;
+    }
+
+    /**
+     * Acquire the texture of <code>request</code> on a background thread
+     * and deliver it to {@link Request#onTextureReady} on the main thread, unless cancelled meanwhile.
+     */
+    void acquireAsync(final Request request) {
+        sWorker.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (request.isCancelled()) {
+                    return;
+                }
+                final WaveTexture texture = acquire(request.key);
+                sMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (request.isCancelled()) {
+                            release(texture);
+                        } else {
+                            request.onTextureReady(texture);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @return texture for <code>key</code>, created if needed. Must be given back with {@link #release}.
+     */
+    WaveTexture acquire(WaveTexture.Key key) {
+        synchronized (this) {
+            WaveTexture texture = mTextures.get(key);
+            if (texture != null) {
+                texture.refCount++;
+                return texture;
+            }
+        }
+
+        // synthesizing takes a while, don't block other views meanwhile
+        WaveTexture created = WaveTexture.create(key);
+
+        synchronized (this) {
+            WaveTexture texture = mTextures.get(key);
+            if (texture == null) {
+                texture = created;
+                mTextures.put(key, texture);
+                mSize += texture.byteCount;
+            }
+            texture.refCount++;
+            trimToSize(mMaxSize);
+            return texture;
+        }
+    }
+
+    synchronized void release(WaveTexture texture) {
+        if (texture.refCount > 0) {
+            texture.refCount--;
+        }
+        trimToSize(mMaxSize);
+    }
+
+    /**
+     * Asynchronous acquisition of a texture, see {@link #acquireAsync}.
+     */
+    abstract static class Request {
+        final WaveTexture.Key key;
+        private volatile boolean mCancelled;
+
+        Request(WaveTexture.Key key) {
+            this.key = key;
+        }
+
+        /**
+         * Must be called on the main thread. The texture is released if it is already being created.
+         */
+        void cancel() {
+            mCancelled = true;
+        }
+
+        boolean isCancelled() {
+            return mCancelled;
+        }
+
+        /**
+         * Called on the main thread with an acquired texture, which the receiver must release.
+         */
+        abstract void onTextureReady(WaveTexture texture);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            evictUnused();
+            WaveBitmapPool.getInstance().clear();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            trimToSize(getMaxSize() / 2);
+            WaveBitmapPool.getInstance().clear();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        evictUnused();
+        WaveBitmapPool.getInstance().clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+}
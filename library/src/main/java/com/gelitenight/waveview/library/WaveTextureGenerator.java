@@ -0,0 +1,170 @@
+package com.gelitenight.waveview.library;
+
+import java.util.Arrays;
+
+/**
+ * Synthesizes the wave texture of {@link WaveView} straight into a pixel buffer, all layers in one pass.
+ * <br/>Rows above the waves stay transparent, rows below are copied from the first solid row,
+ * only the band crossed by the waves is computed per pixel, with antialiased crests.
+ * <p>
+ * Texture rows are numbered as in a full-height texture. A caller may generate any window of them,
+ * e.g. only the wave band plus one transparent and one solid row, and let
+ * {@link android.graphics.Shader.TileMode#CLAMP} repeat the edge rows.
+ */
+final class WaveTextureGenerator {
+    private WaveTextureGenerator() {
+    }
+
+    /**
+     * @return first texture row touched by the waves.
+     */
+    static int bandTop(float waterLevel, float amplitude) {
+        return Math.max(0, (int) Math.floor(waterLevel - Math.abs(amplitude)));
+    }
+
+    /**
+     * @return first texture row fully covered by every wave.
+     */
+    static int bandBottom(float waterLevel, float amplitude) {
+        return (int) Math.ceil(waterLevel + Math.abs(amplitude)) + 1;
+    }
+
+    /**
+     * Fill <code>pixels</code> with <code>layers</code>, composited back to front.
+     * <br/>Crests are evaluated by {@link WaveModel#evaluate(WaveLayer, float[], int, float, float, float, float)},
+     * every pixel under the curve is covered.
+     *
+     * @param pixels           Non-premultiplied ARGB, row major, at least width * rows long.
+     * @param top              Texture row stored in the first row of <code>pixels</code>.
+     * @param rows             Number of texture rows to generate.
+     * @param waterLevel       h, in pixels from the top of the texture.
+     * @param amplitude        A, in pixels.
+     * @param waveLength       λ, in pixels.
+     */
+    static void generate(int[] pixels, int width, int top, int rows,
+                         float waterLevel, float amplitude, float waveLength,
+                         WaveLayer[] layers) {
+        float[][] waveY = computeWaves(width, waterLevel, amplitude, waveLength, layers);
+
+        float bandAmplitude = amplitude * WaveLayer.maxAmplitudeRatio(layers);
+        int bandTop = clamp(bandTop(waterLevel, bandAmplitude) - top, 0, rows);
+        int bandBottom = clamp(bandBottom(waterLevel, bandAmplitude) - top, bandTop, rows);
+
+        Arrays.fill(pixels, 0, bandTop * width, 0);
+
+        for (int row = bandTop; row < bandBottom; row++) {
+            int offset = row * width;
+            int y = top + row;
+            for (int x = 0; x < width; x++) {
+                pixels[offset + x] = composite(layers, waveY, x, y);
+            }
+        }
+
+        if (bandBottom < rows) {
+            int offset = bandBottom * width;
+            Arrays.fill(pixels, offset, offset + width, composite(layers, null, 0, 0));
+            for (int row = bandBottom + 1; row < rows; row++) {
+                System.arraycopy(pixels, offset, pixels, row * width, width);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #generate} but only keeps the composited alpha of the layers,
+     * for an ALPHA_8 texture tinted at draw time.
+     *
+     * @param alpha  One byte per pixel, row major, at least stride * rows long.
+     * @param stride Bytes per row of <code>alpha</code>, at least width.
+     */
+    static void generateAlpha(byte[] alpha, int stride, int width, int top, int rows,
+                              float waterLevel, float amplitude, float waveLength,
+                              WaveLayer[] layers) {
+        float[][] waveY = computeWaves(width, waterLevel, amplitude, waveLength, layers);
+
+        float bandAmplitude = amplitude * WaveLayer.maxAmplitudeRatio(layers);
+        int bandTop = clamp(bandTop(waterLevel, bandAmplitude) - top, 0, rows);
+        int bandBottom = clamp(bandBottom(waterLevel, bandAmplitude) - top, bandTop, rows);
+
+        Arrays.fill(alpha, 0, bandTop * stride, (byte) 0);
+
+        for (int row = bandTop; row < bandBottom; row++) {
+            int offset = row * stride;
+            int y = top + row;
+            for (int x = 0; x < width; x++) {
+                alpha[offset + x] = (byte) compositeAlpha(layers, waveY, x, y);
+            }
+        }
+
+        if (bandBottom < rows) {
+            Arrays.fill(alpha, bandBottom * stride, rows * stride, (byte) compositeAlpha(layers, null, 0, 0));
+        }
+    }
+
+    /**
+     * @return crest heights, one row of <code>width</code> per layer.
+     */
+    private static float[][] computeWaves(int width, float waterLevel, float amplitude,
+                                          float waveLength, WaveLayer[] layers) {
+        float[][] waveY = new float[layers.length][width];
+        for (int i = 0; i < layers.length; i++) {
+            WaveModel.evaluate(layers[i], waveY[i], width, waterLevel, amplitude, waveLength, 0f);
+        }
+        return waveY;
+    }
+
+    /**
+     * Composite the layers covering pixel (x, y), back to front.
+     *
+     * @param waveY Crest heights, null for a pixel fully covered by every layer.
+     */
+    static int composite(WaveLayer[] layers, float[][] waveY, int x, int y) {
+        float alpha = 0f;
+        float r = 0f;
+        float g = 0f;
+        float b = 0f;
+        for (int i = 0; i < layers.length; i++) {
+            int color = layers[i].getColor();
+            float layerAlpha = (color >>> 24) / 255f * (waveY == null ? 1f : coverage(y, waveY[i][x]));
+            if (layerAlpha <= 0f) {
+                continue;
+            }
+            float newAlpha = layerAlpha + alpha * (1f - layerAlpha);
+            float layerWeight = layerAlpha / newAlpha;
+            float weight = 1f - layerWeight;
+            r = r * weight + ((color >> 16) & 0xFF) * layerWeight;
+            g = g * weight + ((color >> 8) & 0xFF) * layerWeight;
+            b = b * weight + (color & 0xFF) * layerWeight;
+            alpha = newAlpha;
+        }
+        if (alpha <= 0f) {
+            return 0;
+        }
+        int a = (int) (alpha * 255f + 0.5f);
+        return (a << 24) | ((int) (r + 0.5f) << 16) | ((int) (g + 0.5f) << 8) | (int) (b + 0.5f);
+    }
+
+    /**
+     * @return composited alpha of the layers covering pixel (x, y), in 0 ~ 255.
+     */
+    private static int compositeAlpha(WaveLayer[] layers, float[][] waveY, int x, int y) {
+        float alpha = 0f;
+        for (int i = 0; i < layers.length; i++) {
+            float layerAlpha = (layers[i].getColor() >>> 24) / 255f
+                    * (waveY == null ? 1f : coverage(y, waveY[i][x]));
+            alpha = layerAlpha + alpha * (1f - layerAlpha);
+        }
+        return (int) (alpha * 255f + 0.5f);
+    }
+
+    /**
+     * @return part of the pixel row <code>y</code> lying under the crest at <code>waveY</code>.
+     */
+    private static float coverage(int y, float waveY) {
+        float coverage = y + 1 - waveY;
+        return coverage <= 0f ? 0f : coverage >= 1f ? 1f : coverage;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return value < min ? min : value > max ? max : value;
+    }
+}
@@ -0,0 +1,729 @@
+package com.gelitenight.waveview.library;
+
+import android.content.Context;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PorterDuff;
+import android.graphics.Shader;
+import android.graphics.SurfaceTexture;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.TextureView;
+import android.view.View;
+
+import com.gelitenight.waveview.library.WaveView.ShapeType;
+
+/**
+ * Same waves as {@link WaveView}, drawn into a {@link TextureView} by a dedicated render thread
+ * with its own frame loop.
+ * <br/>The waves keep moving while the main thread is busy with layout, scrolling or input,
+ * and drawing them costs the main thread nothing. Setters can be called at any time from
+ * the main thread, the render thread picks the new values up with its next frame.
+ * <p>
+ * Frames follow {@link Choreographer} on the render thread, or are posted every 16ms before API 16.
+ * Like {@link WaveView}, the animation pauses while the view is detached, not shown, its window hidden
+ * or, see {@link #setPauseOnFocusLoss}, without focus.
+ * Path based shapes are filled directly with the wave paint, the canvas being a software one.
+ * Textures not cached yet are synthesized in background, nothing is drawn until the first one is ready.
+ */
+public class WaveTextureView extends TextureView implements TextureView.SurfaceTextureListener {
+    private static final double NANOS_PER_SECOND = 1e9;
+    // longest wait of the main thread for the render thread to stop, once the surface is destroyed
+    private static final long FINISH_TIMEOUT_MILLIS = 100;
+
+    // parameters written by the main thread and read by the render thread, guarded by mLock
+    private final Object mLock = new Object();
+    private float mAmplitudeRatio = WaveView.DEFAULT_AMPLITUDE_RATIO;
+    private float mWaveLengthRatio = WaveView.DEFAULT_WAVE_LENGTH_RATIO;
+    private float mWaterLevelRatio = WaveView.DEFAULT_WATER_LEVEL_RATIO;
+    private float mWaveShiftRatio = WaveView.DEFAULT_WAVE_SHIFT_RATIO;
+    private float mWaveSpeed = 1f;
+    private WaveLayer[] mWaveLayers = WaveLayer.createDefaults(
+            WaveView.DEFAULT_BEHIND_WAVE_COLOR, WaveView.DEFAULT_FRONT_WAVE_COLOR);
+    private ShapeType mShapeType = WaveView.DEFAULT_WAVE_SHAPE;
+    private ShapeOutline mCustomShape;
+    private int mBorderWidth;
+    private int mBorderColor;
+    private boolean mAnimationRunning;
+    private boolean mVisible;
+    private int mSurfaceWidth;
+    private int mSurfaceHeight;
+    // top of the view in its parent, the bottle dots depend on it
+    private int mTop;
+
+    // only touched by the main thread
+    private boolean mAttached;
+    private boolean mPauseOnFocusLoss = true;
+
+    // alive while the surface is available, only touched by the main thread
+    private RenderThread mRenderThread;
+
+    public WaveTextureView(Context context) {
+        super(context);
+        init();
+    }
+
+    public WaveTextureView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public WaveTextureView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        init();
+    }
+
+    private void init() {
+        setOpaque(false);
+        setSurfaceTextureListener(this);
+    }
+
+    public float getWaveShiftRatio() {
+        synchronized (mLock) {
+            return mWaveShiftRatio;
+        }
+    }
+
+    /**
+     * @see WaveView#setWaveShiftRatio
+     */
+    public void setWaveShiftRatio(float waveShiftRatio) {
+        synchronized (mLock) {
+            if (mWaveShiftRatio == waveShiftRatio) {
+                return;
+            }
+            mWaveShiftRatio = waveShiftRatio;
+        }
+        requestFrame();
+    }
+
+    public float getWaterLevelRatio() {
+        synchronized (mLock) {
+            return mWaterLevelRatio;
+        }
+    }
+
+    /**
+     * @see WaveView#setWaterLevelRatio
+     */
+    public void setWaterLevelRatio(float waterLevelRatio) {
+        synchronized (mLock) {
+            if (mWaterLevelRatio == waterLevelRatio) {
+                return;
+            }
+            mWaterLevelRatio = waterLevelRatio;
+        }
+        requestFrame();
+    }
+
+    public float getAmplitudeRatio() {
+        synchronized (mLock) {
+            return mAmplitudeRatio;
+        }
+    }
+
+    /**
+     * @see WaveView#setAmplitudeRatio
+     */
+    public void setAmplitudeRatio(float amplitudeRatio) {
+        synchronized (mLock) {
+            if (mAmplitudeRatio == amplitudeRatio) {
+                return;
+            }
+            mAmplitudeRatio = amplitudeRatio;
+        }
+        requestFrame();
+    }
+
+    public float getWaveLengthRatio() {
+        synchronized (mLock) {
+            return mWaveLengthRatio;
+        }
+    }
+
+    /**
+     * @see WaveView#setWaveLengthRatio
+     */
+    public void setWaveLengthRatio(float waveLengthRatio) {
+        synchronized (mLock) {
+            if (mWaveLengthRatio == waveLengthRatio) {
+                return;
+            }
+            mWaveLengthRatio = waveLengthRatio;
+        }
+        requestFrame();
+    }
+
+    public float getWaveSpeed() {
+        synchronized (mLock) {
+            return mWaveSpeed;
+        }
+    }
+
+    /**
+     * @see WaveView#setWaveSpeed
+     */
+    public void setWaveSpeed(float waveSpeed) {
+        synchronized (mLock) {
+            mWaveSpeed = waveSpeed;
+        }
+    }
+
+    /**
+     * @see WaveView#setWaveColor
+     */
+    public void setWaveColor(int behindWaveColor, int frontWaveColor) {
+        setWaveLayers(WaveLayer.createDefaults(behindWaveColor, frontWaveColor));
+    }
+
+    public WaveLayer[] getWaveLayers() {
+        synchronized (mLock) {
+            return mWaveLayers.clone();
+        }
+    }
+
+    /**
+     * @see WaveView#setWaveLayers
+     */
+    public void setWaveLayers(WaveLayer... layers) {
+        if (layers.length == 0) {
+            throw new IllegalArgumentException("at least one wave layer is needed");
+        }
+        synchronized (mLock) {
+            mWaveLayers = layers.clone();
+        }
+        requestFrame();
+    }
+
+    public ShapeType getShapeType() {
+        synchronized (mLock) {
+            return mShapeType;
+        }
+    }
+
+    public void setShapeType(ShapeType shapeType) {
+        synchronized (mLock) {
+            if (mShapeType == shapeType) {
+                return;
+            }
+            mShapeType = shapeType;
+        }
+        requestFrame();
+    }
+
+    /**
+     * @see WaveView#setCustomShape
+     */
+    public void setCustomShape(ShapeOutline outline) {
+        synchronized (mLock) {
+            if (mShapeType == ShapeType.CUSTOM && mCustomShape == outline) {
+                return;
+            }
+            mCustomShape = outline;
+            mShapeType = ShapeType.CUSTOM;
+        }
+        requestFrame();
+    }
+
+    public void setBorder(int width, int color) {
+        synchronized (mLock) {
+            if (mBorderWidth == width && mBorderColor == color) {
+                return;
+            }
+            mBorderWidth = width;
+            mBorderColor = color;
+        }
+        requestFrame();
+    }
+
+    /**
+     * Start shifting the wave continuously on the render thread, from the current wave shift ratio.
+     */
+    public void startWaveAnimation() {
+        synchronized (mLock) {
+            if (mAnimationRunning) {
+                return;
+            }
+            mAnimationRunning = true;
+        }
+        requestFrame();
+    }
+
+    public void stopWaveAnimation() {
+        synchronized (mLock) {
+            mAnimationRunning = false;
+        }
+    }
+
+    public boolean isWaveAnimationRunning() {
+        synchronized (mLock) {
+            return mAnimationRunning;
+        }
+    }
+
+    public boolean isPauseOnFocusLoss() {
+        return mPauseOnFocusLoss;
+    }
+
+    /**
+     * @see WaveView#setPauseOnFocusLoss
+     */
+    public void setPauseOnFocusLoss(boolean pauseOnFocusLoss) {
+        mPauseOnFocusLoss = pauseOnFocusLoss;
+        updateVisibility();
+    }
+
+    private void requestFrame() {
+        if (mRenderThread != null) {
+            mRenderThread.requestFrame();
+        }
+    }
+
+    private void updateVisibility() {
+        if (mLock == null) {
+            // called from the super constructor
+            return;
+        }
+        boolean visible = mAttached && isShown() && getWindowVisibility() == VISIBLE
+                && (!mPauseOnFocusLoss || hasWindowFocus());
+        synchronized (mLock) {
+            if (mVisible == visible) {
+                return;
+            }
+            mVisible = visible;
+        }
+        if (visible) {
+            requestFrame();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+
+        mAttached = true;
+        updateVisibility();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        mAttached = false;
+        updateVisibility();
+
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+
+        updateVisibility();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+
+        updateVisibility();
+    }
+
+    @Override
+    public void onWindowFocusChanged(boolean hasWindowFocus) {
+        super.onWindowFocusChanged(hasWindowFocus);
+
+        updateVisibility();
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+
+        synchronized (mLock) {
+            if (mTop == top) {
+                return;
+            }
+            mTop = top;
+        }
+        requestFrame();
+    }
+
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height) {
+        synchronized (mLock) {
+            mSurfaceWidth = width;
+            mSurfaceHeight = height;
+        }
+        updateVisibility();
+        mRenderThread = new RenderThread();
+        mRenderThread.start();
+        mRenderThread.requestFrame();
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture surface, int width, int height) {
+        synchronized (mLock) {
+            mSurfaceWidth = width;
+            mSurfaceHeight = height;
+        }
+        requestFrame();
+    }
+
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture surface) {
+        if (mRenderThread != null) {
+            // the surface must not be drawn anymore once this returns
+            mRenderThread.finish();
+            mRenderThread = null;
+        }
+        return true;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture surface) {
+    }
+
+    /**
+     * Owns everything used for drawing, only touched on its own thread once started.
+     */
+    private final class RenderThread extends HandlerThread {
+        private Handler mHandler;
+        private FrameScheduler mFrameScheduler;
+        private boolean mScheduled;
+
+        private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final Paint mBorderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final Paint mDotPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        // bottle dots, rebuilt when the width or the top of the view changes
+        private final Path mDotPath = new Path();
+        private int mDotPathWidth;
+        private int mDotPathTop;
+        private final Matrix mShaderMatrix = new Matrix();
+        private final ShapePathCache mShapePaths = new ShapePathCache();
+        private WaveTexture mTexture;
+        private BitmapShader mShader;
+        // guarded by mLock: pending texture, texture delivered for it and not picked up yet,
+        // and whether the main thread finished the thread
+        private TextureRequest mTextureRequest;
+        private WaveTexture mReadyTexture;
+        private boolean mFinished;
+        // time of the previous animated frame, -1 if the next one is the first
+        private long mLastFrameTimeNanos = -1;
+
+        // snapshot of the parameters for the current frame
+        private int mWidth;
+        private int mHeight;
+        private int mFrameTop;
+        private float mFrameAmplitudeRatio;
+        private float mFrameWaveLengthRatio;
+        private float mFrameWaterLevelRatio;
+        private float mFrameWaveShiftRatio;
+        private WaveLayer[] mFrameLayers;
+        private ShapeType mFrameShapeType;
+        private ShapeOutline mFrameCustomShape;
+
+        private final Runnable mRequestFrame = new Runnable() {
+            @Override
+            public void run() {
+                schedule();
+            }
+        };
+
+        RenderThread() {
+            super("WaveRender", Process.THREAD_PRIORITY_DISPLAY);
+            mBorderPaint.setStyle(Paint.Style.STROKE);
+        }
+
+        @Override
+        protected void onLooperPrepared() {
+            mFrameScheduler = FrameScheduler.create(new FrameScheduler.Callback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    RenderThread.this.doFrame(frameTimeNanos);
+                }
+            });
+        }
+
+        private synchronized Handler getHandler() {
+            if (mHandler == null) {
+                // blocks until the looper is prepared
+                mHandler = new Handler(getLooper());
+            }
+            return mHandler;
+        }
+
+        /**
+         * Ask for a frame, from the main thread.
+         */
+        void requestFrame() {
+            getHandler().post(mRequestFrame);
+        }
+
+        /**
+         * Release the textures and stop the thread, from the main thread.
+         * <br/>Waits for the thread to stop for {@link #FINISH_TIMEOUT_MILLIS} at most. A frame still running
+         * afterwards can't draw anymore, the canvas of a destroyed surface can't be locked.
+         */
+        void finish() {
+            WaveTexture readyTexture;
+            synchronized (mLock) {
+                mFinished = true;
+                if (mTextureRequest != null) {
+                    // cancelled on the main thread, so it is never delivered
+                    mTextureRequest.cancel();
+                    mTextureRequest = null;
+                }
+                readyTexture = mReadyTexture;
+                mReadyTexture = null;
+            }
+            if (readyTexture != null) {
+                WaveTextureCache.getInstance(getContext()).release(readyTexture);
+            }
+
+            getHandler().post(new Runnable() {
+                @Override
+                public void run() {
+                    if (mScheduled) {
+                        mFrameScheduler.cancel();
+                        mScheduled = false;
+                    }
+                    releaseTexture();
+                    quit();
+                }
+            });
+            boolean interrupted = false;
+            long deadline = SystemClock.uptimeMillis() + FINISH_TIMEOUT_MILLIS;
+            long remaining;
+            while (isAlive() && (remaining = deadline - SystemClock.uptimeMillis()) > 0) {
+                try {
+                    join(remaining);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void schedule() {
+            if (!mScheduled) {
+                mScheduled = true;
+                mFrameScheduler.post();
+            }
+        }
+
+        private void doFrame(long frameTimeNanos) {
+            mScheduled = false;
+
+            boolean animating;
+            synchronized (mLock) {
+                if (!mVisible) {
+                    // don't count the time spent hidden, the main thread asks for a frame when shown again
+                    mLastFrameTimeNanos = -1;
+                    return;
+                }
+                animating = mAnimationRunning;
+                if (animating && mLastFrameTimeNanos >= 0) {
+                    double seconds = (frameTimeNanos - mLastFrameTimeNanos) / NANOS_PER_SECOND;
+                    double shift = mWaveShiftRatio + seconds * mWaveSpeed;
+                    mWaveShiftRatio = (float) (shift - Math.floor(shift));
+                }
+                mLastFrameTimeNanos = animating ? frameTimeNanos : -1;
+
+                mWidth = mSurfaceWidth;
+                mHeight = mSurfaceHeight;
+                mFrameTop = mTop;
+                mFrameAmplitudeRatio = mAmplitudeRatio;
+                mFrameWaveLengthRatio = mWaveLengthRatio;
+                mFrameWaterLevelRatio = mWaterLevelRatio;
+                mFrameWaveShiftRatio = mWaveShiftRatio;
+                mFrameLayers = mWaveLayers;
+                mFrameShapeType = mShapeType;
+                mFrameCustomShape = mCustomShape;
+                mBorderPaint.setStrokeWidth(mBorderWidth);
+                mBorderPaint.setColor(mBorderColor);
+                mDotPaint.setColor(WaveGeometry.getBottleDotColor(mBorderWidth, mBorderColor,
+                        mWaveLayers[mWaveLayers.length - 1].getColor()));
+            }
+
+            draw();
+
+            if (animating) {
+                schedule();
+            }
+        }
+
+        private void draw() {
+            if (mWidth <= 0 || mHeight <= 0) {
+                return;
+            }
+            updateTexture();
+            if (mTexture == null) {
+                // drawn once the texture is delivered
+                return;
+            }
+            mShapePaths.setSize(mWidth, mHeight);
+
+            Canvas canvas = lockCanvas();
+            if (canvas == null) {
+                return;
+            }
+            try {
+                canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+                drawWave(canvas);
+            } finally {
+                unlockCanvasAndPost(canvas);
+            }
+        }
+
+        /**
+         * Swap in the texture for the current size and layers if it is cached or was delivered,
+         * otherwise request it and keep drawing the previous one, scaled to the new size.
+         */
+        private void updateTexture() {
+            if (mTexture != null && mTexture.key.layers == mFrameLayers
+                    && mTexture.key.width == mWidth && mTexture.key.height == mHeight) {
+                return;
+            }
+            WaveTexture.Key key = WaveGeometry.createTextureKey(mWidth, mHeight, mFrameLayers,
+                    WaveView.TextureMode.STRIP);
+            if (mTexture != null && mTexture.key.equals(key)) {
+                return;
+            }
+
+            WaveTextureCache cache = WaveTextureCache.getInstance(getContext());
+            WaveTexture texture;
+            synchronized (mLock) {
+                texture = mReadyTexture;
+                mReadyTexture = null;
+            }
+            if (texture != null && !texture.key.equals(key)) {
+                // delivered for a previous size or layers
+                cache.release(texture);
+                texture = null;
+            }
+            if (texture == null) {
+                texture = cache.acquireCached(key);
+            }
+            if (texture != null) {
+                setTexture(texture);
+                return;
+            }
+
+            synchronized (mLock) {
+                if (mFinished || (mTextureRequest != null && mTextureRequest.key.equals(key))) {
+                    return;
+                }
+                mTextureRequest = new TextureRequest(key);
+                cache.acquireAsync(mTextureRequest);
+            }
+        }
+
+        private void setTexture(WaveTexture texture) {
+            releaseTexture();
+            mTexture = texture;
+            mShader = new BitmapShader(texture.bitmap, Shader.TileMode.REPEAT, Shader.TileMode.CLAMP);
+            mPaint.setShader(mShader);
+        }
+
+        private void releaseTexture() {
+            if (mTexture != null) {
+                WaveTextureCache.getInstance(getContext()).release(mTexture);
+                mTexture = null;
+                mShader = null;
+                mPaint.setShader(null);
+            }
+        }
+
+        /**
+         * Same geometry and order as {@link WaveView#onDraw}: the border under the wave, the bottle dots over it.
+         */
+        private void drawWave(Canvas canvas) {
+            WaveGeometry.setShaderMatrix(mShaderMatrix, mTexture, mWidth, mHeight,
+                    mFrameWaveLengthRatio, mFrameAmplitudeRatio, mFrameWaveShiftRatio, mFrameWaterLevelRatio);
+            mShader.setLocalMatrix(mShaderMatrix);
+
+            float borderWidth = mBorderPaint.getStrokeWidth();
+            switch (mFrameShapeType) {
+                case CIRCLE:
+                    if (borderWidth > 0) {
+                        canvas.drawCircle(mWidth / 2f, mHeight / 2f,
+                                (mWidth - borderWidth) / 2f - 1f, mBorderPaint);
+                    }
+                    canvas.drawCircle(mWidth / 2f, mHeight / 2f, mWidth / 2f - borderWidth, mPaint);
+                    break;
+                case SQUARE:
+                    if (borderWidth > 0) {
+                        canvas.drawRect(
+                                borderWidth / 2f,
+                                borderWidth / 2f,
+                                mWidth - borderWidth / 2f - 0.5f,
+                                mHeight - borderWidth / 2f - 0.5f,
+                                mBorderPaint);
+                    }
+                    canvas.drawRect(borderWidth, borderWidth, mWidth - borderWidth,
+                            mHeight - borderWidth, mPaint);
+                    break;
+                default:
+                    ShapeOutline outline = WaveGeometry.getShapeOutline(mFrameShapeType, mFrameCustomShape);
+                    if (outline == null) {
+                        break;
+                    }
+                    Path shape = mShapePaths.get(outline);
+                    if (borderWidth > 0) {
+                        canvas.drawPath(shape, mBorderPaint);
+                    }
+                    canvas.drawPath(shape, mPaint);
+                    break;
+            }
+
+            if (mFrameShapeType == ShapeType.BOTTLE) {
+                if (mDotPath.isEmpty() || mDotPathWidth != mWidth || mDotPathTop != mFrameTop) {
+                    mDotPath.reset();
+                    mDotPathWidth = mWidth;
+                    mDotPathTop = mFrameTop;
+                    WaveGeometry.addBottleDots(mDotPath, mWidth, mFrameTop);
+                }
+                canvas.drawPath(mDotPath, mDotPaint);
+            }
+        }
+
+        /**
+         * Delivered on the main thread, handed over to the render thread with its next frame.
+         */
+        private final class TextureRequest extends WaveTextureCache.Request {
+            TextureRequest(WaveTexture.Key key) {
+                super(key);
+            }
+
+            @Override
+            void onTextureReady(WaveTexture texture) {
+                WaveTexture unused = texture;
+                boolean handedOver = false;
+                synchronized (mLock) {
+                    // replaced requests are not cancelled, they are only delivered to be released
+                    if (mTextureRequest == this) {
+                        mTextureRequest = null;
+                        unused = mReadyTexture;
+                        mReadyTexture = texture;
+                        handedOver = true;
+                    }
+                }
+                if (unused != null) {
+                    WaveTextureCache.getInstance(getContext()).release(unused);
+                }
+                if (handedOver) {
+                    RenderThread.this.requestFrame();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.gelitenight.waveview.library;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Systrace sections of the wave views, shown under the app tag.
+ * <br/>Section names are constants, so a section only costs the tag check of {@link Trace}
+ * when tracing is off. Nothing is traced before API 18.
+ */
+final class WaveTrace {
+    static final String CREATE_SHADER = "WaveView#createShader";
+    static final String DRAW = "WaveView#onDraw";
+    static final String BUILD_SHAPE = "WaveView#buildShape";
+    static final String STATIC_PATHS = "WaveView#updateStaticPaths";
+    static final String SYNTHESIZE_TEXTURE = "WaveTexture#create";
+
+    private static final boolean SUPPORTED = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+
+    private WaveTrace() {
+    }
+
+    /**
+     * Must be ended by {@link #end} on the same thread.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    static void begin(String section) {
+        if (SUPPORTED) {
+            Trace.beginSection(section);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    static void end() {
+        if (SUPPORTED) {
+            Trace.endSection();
+        }
+    }
+}
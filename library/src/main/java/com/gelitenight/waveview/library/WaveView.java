@@ -16,7 +16,6 @@
 package com.gelitenight.waveview.library;
 
 import android.content.Context;
-import android.graphics.Bitmap;
 import android.graphics.BitmapShader;
 import android.graphics.Canvas;
 import android.graphics.Color;
@@ -28,8 +27,8 @@ import android.graphics.Point;
 import android.graphics.RectF;
 import android.graphics.Region;
 import android.graphics.Shader;
+import android.os.Build;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.View;
 
 public class WaveView extends View {
@@ -48,21 +47,48 @@ public class WaveView extends View {
      * |                        |  |
      * +------------------------+__|____
      */
-    private static final float DEFAULT_AMPLITUDE_RATIO = 0.05f;
-    private static final float DEFAULT_WATER_LEVEL_RATIO = 0.5f;
-    private static final float DEFAULT_WAVE_LENGTH_RATIO = 1.0f;
-    private static final float DEFAULT_WAVE_SHIFT_RATIO = 0.0f;
+    static final float DEFAULT_AMPLITUDE_RATIO = WaveModel.DEFAULT_AMPLITUDE_RATIO;
+    static final float DEFAULT_WATER_LEVEL_RATIO = WaveModel.DEFAULT_WATER_LEVEL_RATIO;
+    static final float DEFAULT_WAVE_LENGTH_RATIO = WaveModel.DEFAULT_WAVE_LENGTH_RATIO;
+    static final float DEFAULT_WAVE_SHIFT_RATIO = WaveModel.DEFAULT_WAVE_SHIFT_RATIO;
 
     public static final int DEFAULT_BEHIND_WAVE_COLOR = Color.parseColor("#280000FF");
     public static final int DEFAULT_FRONT_WAVE_COLOR = Color.parseColor("#3C0000FF");
     public static final ShapeType DEFAULT_WAVE_SHAPE = ShapeType.CIRCLE;
+    public static final TextureMode DEFAULT_TEXTURE_MODE = TextureMode.STRIP;
+    public static final int DEFAULT_TARGET_FRAME_RATE = 0;
+    public static final int DEFAULT_POWER_SAVE_FRAME_RATE = 30;
 
     public enum ShapeType {
         CIRCLE,
         SQUARE,
         BOTTLE,
         DROP,
-        GLASS
+        GLASS,
+        // outline set with setCustomShape
+        CUSTOM
+    }
+
+    /**
+     * Receives the draw time statistics of every frame, see {@link #setFrameStatsListener}.
+     */
+    public interface OnFrameStatsListener {
+        /**
+         * Called on the main thread at the end of every frame drawn with the wave.
+         *
+         * @param stats Updated in place by the next frames, copy what is kept.
+         */
+        void onFrameStats(WaveView view, WaveFrameStats stats);
+    }
+
+    public enum TextureMode {
+        // ARGB_8888 texture as large as the view
+        FULL,
+        // ARGB_8888 texture one wave length wide and only as high as the waves, clamp fills the rest
+        STRIP,
+        // same as STRIP in ALPHA_8, tinted with the color of the front layer at draw time.
+        // Only fits layers sharing their RGB and differing by alpha, like the default colors
+        ALPHA_STRIP
     }
 
     // if true, the shader will display the wave
@@ -70,26 +96,65 @@ public class WaveView extends View {
 
     // shader containing repeated waves
     private BitmapShader mWaveShader;
+    // texture of mWaveShader, acquired from WaveTextureCache
+    private WaveTexture mWaveTexture;
+    // texture recorded by the last onDraw, the display list may still show it after mWaveTexture changed
+    private WaveTexture mDrawnTexture;
+    // texture being created in background, replaces mWaveTexture when ready
+    private TextureRequest mPendingTexture;
+    // true when the texture must be (re)created on the next shown frame
+    private boolean mTextureDirty = true;
     // shader matrix
     private Matrix mShaderMatrix;
     // paint to draw wave
     private Paint mViewPaint;
     // paint to draw border
     private Paint mBorderPaint;
+    // border outline, built once and stroked with mBorderPaint every frame
+    private Path mBorderPath;
+    // bottle dots, built once and filled with mDotPaint every frame
+    private Path mDotPath;
+    private Paint mDotPaint;
+    // true when mBorderPath and mDotPath must be rebuilt before the next frame
+    private boolean mStaticPathsDirty = true;
+    // top of the view mDotPath was built for, the bottle dots depend on it
+    private int mDotPathTop;
+    // outlines of path based shapes, rebuilt only when size changes
+    private ShapePathCache mShapePaths;
+    // fills path based shapes with the wave
+    private ShapeRenderer mShapeRenderer;
+    // true when mShapeRenderer has not seen the current outline yet
+    private boolean mShapeRendererDirty = true;
+    // layer type before a clip renderer forced a software layer, restored once it is replaced, -1 if not forced
+    private int mLayerTypeBeforeClip = -1;
+    // drives wave shift and amplitude from frame time
+    private WaveAnimator mAnimator;
+    private boolean mAttached;
+    // if true, the animation also pauses while the window has no focus, e.g. under a dialog
+    private boolean mPauseOnFocusLoss = true;
+    // frames per second of the wave animation, 0 for the display rate
+    private int mTargetFrameRate = DEFAULT_TARGET_FRAME_RATE;
+    // frames per second while the device saves power, 0 to ignore power save mode
+    private int mPowerSaveFrameRate = DEFAULT_POWER_SAVE_FRAME_RATE;
+    private boolean mPowerSaveMode;
+    private final PowerSaveMonitor.Listener mPowerSaveListener = new PowerSaveMonitor.Listener() {
+        @Override
+        public void onPowerSaveModeChanged(boolean powerSaveMode) {
+            mPowerSaveMode = powerSaveMode;
+            updateAnimationFrameRate();
+        }
+    };
 
-    private float mDefaultAmplitude;
-    private float mDefaultWaterLevel;
-    private float mDefaultWaveLength;
-    private double mDefaultAngularFrequency;
+    // ratios and layers of the waves
+    private final WaveModel mModel = new WaveModel();
 
-    private float mAmplitudeRatio = DEFAULT_AMPLITUDE_RATIO;
-    private float mWaveLengthRatio = DEFAULT_WAVE_LENGTH_RATIO;
-    private float mWaterLevelRatio = DEFAULT_WATER_LEVEL_RATIO;
-    private float mWaveShiftRatio = DEFAULT_WAVE_SHIFT_RATIO;
+    private OnFrameStatsListener mFrameStatsListener;
+    // only allocated while a listener is set
+    private WaveFrameStats mFrameStats;
 
-    private int mBehindWaveColor = DEFAULT_BEHIND_WAVE_COLOR;
-    private int mFrontWaveColor = DEFAULT_FRONT_WAVE_COLOR;
     private ShapeType mShapeType = DEFAULT_WAVE_SHAPE;
+    private ShapeOutline mCustomShape;
+    private TextureMode mTextureMode = DEFAULT_TEXTURE_MODE;
 
     public WaveView(Context context) {
         super(context);
@@ -108,12 +173,30 @@ public class WaveView extends View {
 
     private void init() {
         mShaderMatrix = new Matrix();
+        mShapePaths = new ShapePathCache();
+        mShapeRenderer = createDefaultShapeRenderer();
+        mAnimator = new WaveAnimator(this);
         mViewPaint = new Paint();
         mViewPaint.setAntiAlias(true);
+        mBorderPath = new Path();
+        mDotPath = new Path();
+        mDotPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    }
+
+    /**
+     * Pick the renderer for path based shapes according to the API level.
+     * <br/>Layers got cheap enough on hardware accelerated canvases with API 18,
+     * older devices tessellate the outline every frame instead.
+     */
+    private static ShapeRenderer createDefaultShapeRenderer() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            return new MaskShapeRenderer();
+        }
+        return new ShaderShapeRenderer();
     }
 
     public float getWaveShiftRatio() {
-        return mWaveShiftRatio;
+        return mModel.getWaveShiftRatio();
     }
 
     /**
@@ -123,14 +206,14 @@ public class WaveView extends View {
      *                       <br/>Result of waveShiftRatio multiples width of WaveView is the length to shift.
      */
     public void setWaveShiftRatio(float waveShiftRatio) {
-        if (mWaveShiftRatio != waveShiftRatio) {
-            mWaveShiftRatio = waveShiftRatio;
-            invalidate();
+        if (mModel.getWaveShiftRatio() != waveShiftRatio) {
+            mModel.setWaveShiftRatio(waveShiftRatio);
+            invalidateWaveBand(mModel.getWaterLevelRatio(), mModel.getBandAmplitudeRatio());
         }
     }
 
     public float getWaterLevelRatio() {
-        return mWaterLevelRatio;
+        return mModel.getWaterLevelRatio();
     }
 
     /**
@@ -140,14 +223,32 @@ public class WaveView extends View {
      *                        <br/>Ratio of water level to WaveView height.
      */
     public void setWaterLevelRatio(float waterLevelRatio) {
-        if (mWaterLevelRatio != waterLevelRatio) {
-            mWaterLevelRatio = waterLevelRatio;
-            invalidate();
+        mAnimator.cancelWaterLevel();
+        applyWaterLevelRatio(waterLevelRatio);
+    }
+
+    /**
+     * Move the water level smoothly to <code>waterLevelRatio</code>.
+     * <br/>Calling it again while moving retargets the running transition,
+     * so rapid changes result in one continuous motion.
+     *
+     * @param waterLevelRatio See {@link #setWaterLevelRatio}.
+     * @param durationMillis  Duration from the current level, 0 to jump.
+     */
+    public void animateWaterLevelTo(float waterLevelRatio, long durationMillis) {
+        mAnimator.animateWaterLevelTo(waterLevelRatio, durationMillis);
+    }
+
+    void applyWaterLevelRatio(float waterLevelRatio) {
+        float oldWaterLevelRatio = mModel.getWaterLevelRatio();
+        if (oldWaterLevelRatio != waterLevelRatio) {
+            mModel.setWaterLevelRatio(waterLevelRatio);
+            invalidateWaveBand(oldWaterLevelRatio, mModel.getBandAmplitudeRatio());
         }
     }
 
     public float getAmplitudeRatio() {
-        return mAmplitudeRatio;
+        return mModel.getAmplitudeRatio();
     }
 
     /**
@@ -157,14 +258,42 @@ public class WaveView extends View {
      *                       <br/>Ratio of amplitude to height of WaveView.
      */
     public void setAmplitudeRatio(float amplitudeRatio) {
-        if (mAmplitudeRatio != amplitudeRatio) {
-            mAmplitudeRatio = amplitudeRatio;
-            invalidate();
+        if (mModel.getAmplitudeRatio() != amplitudeRatio) {
+            float oldBandAmplitudeRatio = mModel.getBandAmplitudeRatio();
+            mModel.setAmplitudeRatio(amplitudeRatio);
+            invalidateWaveBand(mModel.getWaterLevelRatio(), oldBandAmplitudeRatio);
+        }
+    }
+
+    /**
+     * Invalidate only the rows where the waves change.
+     * <br/>The texture is transparent above the waves and solid below them, so shifting the waves
+     * only changes the band of the current water level plus and minus the amplitude. When the
+     * level or the amplitude changes, the old band, the new one and the rows between them change.
+     */
+    private void invalidateWaveBand(float oldWaterLevelRatio, float oldBandAmplitudeRatio) {
+        int height = getHeight();
+        // the highest layer decides the band
+        float waterLevelRatio = mModel.getWaterLevelRatio();
+        float bandAmplitudeRatio = mModel.getBandAmplitudeRatio();
+        float oldTop = (1f - oldWaterLevelRatio - oldBandAmplitudeRatio) * height;
+        float oldBottom = (1f - oldWaterLevelRatio + oldBandAmplitudeRatio) * height;
+        float top = (1f - waterLevelRatio - bandAmplitudeRatio) * height;
+        float bottom = (1f - waterLevelRatio + bandAmplitudeRatio) * height;
+
+        // one more row on each side for antialiased crests
+        // min and max of all four, the amplitude may be negative to flip the waves
+        float minTop = Math.min(Math.min(oldTop, oldBottom), Math.min(top, bottom));
+        float maxBottom = Math.max(Math.max(oldTop, oldBottom), Math.max(top, bottom));
+        int dirtyTop = Math.max(0, (int) Math.floor(minTop) - 1);
+        int dirtyBottom = Math.min(height, (int) Math.ceil(maxBottom) + 1);
+        if (dirtyTop < dirtyBottom) {
+            invalidate(0, dirtyTop, getWidth(), dirtyBottom);
         }
     }
 
     public float getWaveLengthRatio() {
-        return mWaveLengthRatio;
+        return mModel.getWaveLengthRatio();
     }
 
     /**
@@ -174,7 +303,97 @@ public class WaveView extends View {
      *                        <br/>Ratio of wave length to width of WaveView.
      */
     public void setWaveLengthRatio(float waveLengthRatio) {
-        mWaveLengthRatio = waveLengthRatio;
+        mModel.setWaveLengthRatio(waveLengthRatio);
+    }
+
+    public float getWaveSpeed() {
+        return mAnimator.getWaveSpeed();
+    }
+
+    /**
+     * Set how fast the wave animation shifts the wave.
+     *
+     * @param waveSpeed In wave lengths per second. Default to be 1.
+     */
+    public void setWaveSpeed(float waveSpeed) {
+        mAnimator.setWaveSpeed(waveSpeed);
+    }
+
+    /**
+     * Let the wave animation oscillate the amplitude.
+     *
+     * @param minAmplitudeRatio Smallest amplitude ratio, see {@link #setAmplitudeRatio}.
+     * @param maxAmplitudeRatio Largest amplitude ratio.
+     * @param periodMillis      Duration of one oscillation, 0 to keep the amplitude as it is.
+     */
+    public void setAmplitudeAnimation(float minAmplitudeRatio, float maxAmplitudeRatio, long periodMillis) {
+        mAnimator.setAmplitudeAnimation(minAmplitudeRatio, maxAmplitudeRatio, periodMillis);
+    }
+
+    public boolean isPauseOnFocusLoss() {
+        return mPauseOnFocusLoss;
+    }
+
+    /**
+     * @param pauseOnFocusLoss If true, the default, the wave animation pauses while the window has no focus.
+     *                         <br/>It always pauses while the view is detached, not shown or its window hidden.
+     */
+    public void setPauseOnFocusLoss(boolean pauseOnFocusLoss) {
+        mPauseOnFocusLoss = pauseOnFocusLoss;
+        updateAnimationVisibility();
+    }
+
+    public int getTargetFrameRate() {
+        return mTargetFrameRate;
+    }
+
+    /**
+     * Cap the frame rate of the wave animation. Wave speed does not depend on it.
+     *
+     * @param targetFrameRate Frames per second, e.g. 60, 30 or 15. Default to be 0, the display rate.
+     */
+    public void setTargetFrameRate(int targetFrameRate) {
+        mTargetFrameRate = targetFrameRate;
+        updateAnimationFrameRate();
+    }
+
+    public int getPowerSaveFrameRate() {
+        return mPowerSaveFrameRate;
+    }
+
+    /**
+     * Cap the frame rate of the wave animation while the device is in power save mode (API 21+).
+     *
+     * @param powerSaveFrameRate Frames per second. Default to be 30, 0 to ignore power save mode.
+     */
+    public void setPowerSaveFrameRate(int powerSaveFrameRate) {
+        mPowerSaveFrameRate = powerSaveFrameRate;
+        updateAnimationFrameRate();
+    }
+
+    private void updateAnimationFrameRate() {
+        int frameRate = mTargetFrameRate;
+        if (mPowerSaveMode && mPowerSaveFrameRate > 0
+                && (frameRate <= 0 || mPowerSaveFrameRate < frameRate)) {
+            frameRate = mPowerSaveFrameRate;
+        }
+        mAnimator.setFrameRate(frameRate);
+    }
+
+    /**
+     * Start shifting the wave continuously, from the current wave shift ratio.
+     * <br/>Frames are only requested while the view is visible to the user.
+     */
+    public void startWaveAnimation() {
+        mAnimator.start();
+    }
+
+    public void stopWaveAnimation() {
+        mAnimator.stop();
+    }
+
+    public boolean isWaveAnimationRunning() {
+        return mAnimator.isRunning();
     }
 
     public boolean isShowWave() {
@@ -182,7 +401,13 @@ public class WaveView extends View {
     }
 
     public void setShowWave(boolean showWave) {
-        mShowWave = showWave;
+        if (mShowWave != showWave) {
+            mShowWave = showWave;
+            if (!showWave) {
+                dropTexture();
+            }
+            invalidate();
+        }
     }
 
     public void setBorder(int width, int color) {
@@ -194,76 +419,403 @@ public class WaveView extends View {
         mBorderPaint.setColor(color);
         mBorderPaint.setStrokeWidth(width);
 
+        mStaticPathsDirty = true;
         invalidate();
     }
 
+    /**
+     * Replace the waves with the two default layers in these colors,
+     * the front wave shifted by a quarter wave length.
+     */
     public void setWaveColor(int behindWaveColor, int frontWaveColor) {
-        mBehindWaveColor = behindWaveColor;
-        mFrontWaveColor = frontWaveColor;
+        setWaveLayers(WaveLayer.createDefaults(behindWaveColor, frontWaveColor));
+    }
+
+    public WaveLayer[] getWaveLayers() {
+        return mModel.getLayers().clone();
+    }
+
+    /**
+     * Set the waves, drawn back to front.
+     * <br/>All layers are composed into one texture, so drawing costs the same whatever their number.
+     * They all move with the wave shift, at the wave speed of the view.
+     *
+     * @param layers At least one layer, the first one is the furthest.
+     */
+    public void setWaveLayers(WaveLayer... layers) {
+        mModel.setLayers(layers);
 
-        // need to recreate shader when color changed
-        mWaveShader = null;
-        createShader();
+        // need to recreate shader when layers changed, the current one is drawn until then
+        mTextureDirty = true;
+        // bottle dots take the wave color without border
+        mStaticPathsDirty = true;
         invalidate();
     }
 
+    public TextureMode getTextureMode() {
+        return mTextureMode;
+    }
+
+    /**
+     * Set how the wave texture is stored.
+     *
+     * @param textureMode Default to be STRIP. FULL uses about ten times more memory than STRIP,
+     *                    and ALPHA_STRIP four times less than STRIP.
+     */
+    public void setTextureMode(TextureMode textureMode) {
+        if (mTextureMode != textureMode) {
+            mTextureMode = textureMode;
+            mTextureDirty = true;
+            invalidate();
+        }
+    }
+
+    public ShapeType getShapeType() {
+        return mShapeType;
+    }
+
     public void setShapeType(ShapeType shapeType) {
         mShapeType = shapeType;
+        mShapeRendererDirty = true;
+        mStaticPathsDirty = true;
         invalidate();
     }
 
+    public ShapeOutline getCustomShape() {
+        return mCustomShape;
+    }
+
+    /**
+     * Use <code>outline</code> as the shape of the view and switch shape type to CUSTOM.
+     *
+     * @param outline Outline in unit coordinates, usually obtained from {@link ShapeOutlines}.
+     */
+    public void setCustomShape(ShapeOutline outline) {
+        mCustomShape = outline;
+        setShapeType(ShapeType.CUSTOM);
+    }
+
+    public ShapeRenderer getShapeRenderer() {
+        return mShapeRenderer;
+    }
+
+    /**
+     * Set how BOTTLE, DROP, GLASS and CUSTOM shapes are filled with the wave.
+     *
+     * @param shapeRenderer Null to pick one according to the API level.
+     *                      <br/>CIRCLE and SQUARE are always drawn directly with the wave paint.
+     */
+    public void setShapeRenderer(ShapeRenderer shapeRenderer) {
+        if (shapeRenderer == null) {
+            shapeRenderer = createDefaultShapeRenderer();
+        }
+        if (mShapeRenderer != shapeRenderer) {
+            mShapeRenderer.release();
+            mShapeRenderer = shapeRenderer;
+            mShapeRendererDirty = true;
+
+            // path clipping is not hardware accelerated before API 18
+            boolean needsSoftwareLayer = shapeRenderer instanceof ClipShapeRenderer
+                    && Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2;
+            if (needsSoftwareLayer && mLayerTypeBeforeClip < 0) {
+                mLayerTypeBeforeClip = getLayerType();
+                setLayerType(LAYER_TYPE_SOFTWARE, null);
+            } else if (!needsSoftwareLayer && mLayerTypeBeforeClip >= 0) {
+                setLayerType(mLayerTypeBeforeClip, null);
+                mLayerTypeBeforeClip = -1;
+            }
+            invalidate();
+        }
+    }
+
+    public OnFrameStatsListener getFrameStatsListener() {
+        return mFrameStatsListener;
+    }
+
+    /**
+     * Measure the time spent in {@link #onDraw} and report it after every frame.
+     * <br/>Statistics start over whenever a listener is set, nothing is measured without one.
+     *
+     * @param listener null to stop measuring.
+     */
+    public void setFrameStatsListener(OnFrameStatsListener listener) {
+        mFrameStatsListener = listener;
+        mFrameStats = listener == null ? null : new WaveFrameStats();
+    }
+
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
 
-        createShader();
+        mShapePaths.setSize(w, h);
+        mShapeRendererDirty = true;
+        mTextureDirty = true;
+        mStaticPathsDirty = true;
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+
+        if (mShapeType == ShapeType.BOTTLE && mDotPathTop != top) {
+            mStaticPathsDirty = true;
+            invalidate();
+        }
     }
 
     /**
-     * Create the shader with default waves which repeat horizontally, and clamp vertically
+     * Build what does not move with the waves, the border and the bottle dots, into mBorderPath and mDotPath.
+     * <br/>Only called after a size, shape, border or color change, frames then stroke and fill
+     * the cached paths without touching any paint.
      */
-    private void createShader() {
-        mDefaultAngularFrequency = 2.0f * Math.PI / DEFAULT_WAVE_LENGTH_RATIO / getWidth();
-        mDefaultAmplitude = getHeight() * DEFAULT_AMPLITUDE_RATIO;
-        mDefaultWaterLevel = getHeight() * DEFAULT_WATER_LEVEL_RATIO;
-        mDefaultWaveLength = getWidth();
-
-        Bitmap bitmap = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(bitmap);
+    private void updateStaticPaths() {
+        int width = getWidth();
+        int height = getHeight();
+        float borderWidth = mBorderPaint == null ? 0f : mBorderPaint.getStrokeWidth();
+        mBorderPath.reset();
+        mDotPath.reset();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
 
-        Paint wavePaint = new Paint();
-        wavePaint.setStrokeWidth(2);
-        wavePaint.setAntiAlias(true);
+        if (borderWidth > 0) {
+            switch (mShapeType) {
+                case CIRCLE:
+                    mBorderPath.addCircle(width / 2f, height / 2f,
+                            (width - borderWidth) / 2f - 1f, Path.Direction.CW);
+                    break;
+                case SQUARE:
+                    mBorderPath.addRect(
+                            borderWidth / 2f,
+                            borderWidth / 2f,
+                            width - borderWidth / 2f - 0.5f,
+                            height - borderWidth / 2f - 0.5f,
+                            Path.Direction.CW);
+                    break;
+                default:
+                    ShapeOutline outline = WaveGeometry.getShapeOutline(mShapeType, mCustomShape);
+                    if (outline != null) {
+                        mBorderPath.addPath(mShapePaths.get(outline));
+                    }
+                    break;
+            }
+        }
+        if (mShapeType == ShapeType.BOTTLE) {
+            mDotPaint.setColor(WaveGeometry.getBottleDotColor(borderWidth,
+                    borderWidth > 0 ? mBorderPaint.getColor() : 0, mModel.getFrontColor()));
+            mDotPathTop = getTop();
+            WaveGeometry.addBottleDots(mDotPath, width, mDotPathTop);
+        }
+    }
 
-        // Draw default waves into the bitmap
-        // y=Asin(ωx+φ)+h
-        final int endX = getWidth() + 1;
-        final int endY = getHeight() + 1;
+    /**
+     * Create the shader with default waves which repeat horizontally, and clamp vertically.
+     * <br/>Called from the first frame drawn with the wave after a change, so hidden views never allocate
+     * a texture. Textures not cached yet are synthesized in background, the current shader is drawn,
+     * scaled to the new size, until the new one replaces it.
+     */
+    private void createShader() {
+        if (getWidth() <= 0 || getHeight() <= 0) {
+            return;
+        }
 
-        float[] waveY = new float[endX];
+        WaveTrace.begin(WaveTrace.CREATE_SHADER);
+        try {
+            acquireTexture();
+        } finally {
+            WaveTrace.end();
+        }
+    }
 
-        wavePaint.setColor(mBehindWaveColor);
-        for (int beginX = 0; beginX < endX; beginX++) {
-            double wx = beginX * mDefaultAngularFrequency;
-            float beginY = (float) (mDefaultWaterLevel + mDefaultAmplitude * Math.sin(wx));
-            canvas.drawLine(beginX, beginY, beginX, endY, wavePaint);
+    /**
+     * Look for the texture of the current size and layers, synthesize it if it is not cached yet.
+     */
+    private void acquireTexture() {
+        WaveTexture.Key key = WaveGeometry.createTextureKey(getWidth(), getHeight(), mModel.getLayers(), mTextureMode);
+        if (mPendingTexture != null) {
+            if (mPendingTexture.key.equals(key)) {
+                return;
+            }
+            mPendingTexture.cancel();
+            mPendingTexture = null;
+        }
+        if (mWaveTexture != null && mWaveTexture.key.equals(key)) {
+            return;
+        }
 
-            waveY[beginX] = beginY;
+        // views with the same size and colors share one texture
+        WaveTextureCache cache = WaveTextureCache.getInstance(getContext());
+        WaveTexture texture = cache.acquireCached(key);
+        if (texture != null) {
+            setTexture(texture);
+        } else {
+            mPendingTexture = new TextureRequest(key);
+            cache.acquireAsync(mPendingTexture);
         }
+    }
 
-        wavePaint.setColor(mFrontWaveColor);
-        final int wave2Shift = (int) (mDefaultWaveLength / 4);
-        for (int beginX = 0; beginX < endX; beginX++) {
-            canvas.drawLine(beginX, waveY[(beginX + wave2Shift) % endX], beginX, endY, wavePaint);
+    /**
+     * Swap in <code>texture</code>. The previous one is released right away if it was never drawn,
+     * otherwise once the next frame no longer draws it.
+     */
+    private void setTexture(WaveTexture texture) {
+        if (mWaveTexture != null && mWaveTexture != mDrawnTexture) {
+            releaseTexture(mWaveTexture);
         }
+        mWaveTexture = texture;
+
+        // alpha textures are tinted with the paint color
+        WaveLayer[] layers = texture.key.layers;
+        mViewPaint.setColor(texture.key.textureMode == TextureMode.ALPHA_STRIP
+                ? layers[layers.length - 1].getColor() | 0xFF000000 : Color.BLACK);
 
         // use the bitamp to create the shader
-        mWaveShader = new BitmapShader(bitmap, Shader.TileMode.REPEAT, Shader.TileMode.CLAMP);
+        mWaveShader = new BitmapShader(texture.bitmap, Shader.TileMode.REPEAT, Shader.TileMode.CLAMP);
         mViewPaint.setShader(mWaveShader);
+        if (mFrameStats != null) {
+            mFrameStats.recordShaderRebuild();
+        }
+    }
+
+    private final class TextureRequest extends WaveTextureCache.Request {
+        TextureRequest(WaveTexture.Key key) {
+            super(key);
+        }
+
+        @Override
+        void onTextureReady(WaveTexture texture) {
+            mPendingTexture = null;
+            setTexture(texture);
+            invalidate();
+        }
+    }
+
+    /**
+     * Give <code>texture</code> back to the shared cache, which may evict it and pool its bitmap
+     * for the next texture.
+     */
+    private void releaseTexture(WaveTexture texture) {
+        WaveTextureCache.getInstance(getContext()).release(texture);
+    }
+
+    /**
+     * Remember the texture drawn by the frame just recorded, and release the one drawn before
+     * if it was replaced meanwhile: no display list references its bitmap anymore.
+     */
+    private void setDrawnTexture(WaveTexture texture) {
+        if (mDrawnTexture != null && mDrawnTexture != texture && mDrawnTexture != mWaveTexture) {
+            releaseTexture(mDrawnTexture);
+        }
+        mDrawnTexture = texture;
+    }
+
+    /**
+     * Release the texture until the view draws the wave again.
+     */
+    private void dropTexture() {
+        if (mPendingTexture != null) {
+            mPendingTexture.cancel();
+            mPendingTexture = null;
+        }
+        // nothing shows the view anymore, so the drawn texture goes too
+        setDrawnTexture(null);
+        if (mWaveTexture != null) {
+            releaseTexture(mWaveTexture);
+            mWaveTexture = null;
+        }
+        if (mWaveShader != null) {
+            mWaveShader = null;
+            mViewPaint.setShader(null);
+        }
+        mTextureDirty = true;
+    }
+
+    /**
+     * Pause the wave animation while the user cannot see the view.
+     */
+    private void updateAnimationVisibility() {
+        if (mAnimator == null) {
+            // called from the super constructor
+            return;
+        }
+        mAnimator.setVisible(mAttached && isShown() && getWindowVisibility() == VISIBLE
+                && (!mPauseOnFocusLoss || hasWindowFocus()));
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+
+        mAttached = true;
+        PowerSaveMonitor.getInstance(getContext()).addListener(mPowerSaveListener);
+        updateAnimationVisibility();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+
+        mAttached = false;
+        PowerSaveMonitor.getInstance(getContext()).removeListener(mPowerSaveListener);
+        updateAnimationVisibility();
+        // let the cache evict the texture while the view is not shown
+        dropTexture();
+        mShapeRenderer.release();
+        mShapeRendererDirty = true;
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+
+        updateAnimationVisibility();
+        if (!isShown()) {
+            dropTexture();
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+
+        updateAnimationVisibility();
+        if (visibility != VISIBLE) {
+            dropTexture();
+        }
+    }
+
+    @Override
+    public void onWindowFocusChanged(boolean hasWindowFocus) {
+        super.onWindowFocusChanged(hasWindowFocus);
+
+        updateAnimationVisibility();
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
+        long start = mFrameStats != null ? System.nanoTime() : 0;
+        WaveTrace.begin(WaveTrace.DRAW);
+        try {
+            drawWave(canvas);
+        } finally {
+            WaveTrace.end();
+        }
+        setDrawnTexture(mShowWave && mWaveShader != null ? mWaveTexture : null);
+
+        // the listener may clear itself
+        WaveFrameStats stats = mFrameStats;
+        if (stats != null && mShowWave && mWaveShader != null) {
+            stats.recordFrame(System.nanoTime() - start);
+            mFrameStatsListener.onFrameStats(this, stats);
+        }
+    }
+
+    private void drawWave(Canvas canvas) {
+        if (mShowWave && mTextureDirty) {
+            mTextureDirty = false;
+            createShader();
+        }
+
         // modify paint shader according to mShowWave state
         if (mShowWave && mWaveShader != null) {
             // first call after mShowWave, assign it to our paint
@@ -271,189 +823,65 @@ public class WaveView extends View {
                 mViewPaint.setShader(mWaveShader);
             }
 
-            // sacle shader according to mWaveLengthRatio and mAmplitudeRatio
-            // this decides the size(mWaveLengthRatio for width, mAmplitudeRatio for height) of waves
-            mShaderMatrix.setScale(
-                    mWaveLengthRatio / DEFAULT_WAVE_LENGTH_RATIO,
-                    mAmplitudeRatio / DEFAULT_AMPLITUDE_RATIO,
-                    0,
-                    mDefaultWaterLevel);
-            // translate shader according to mWaveShiftRatio and mWaterLevelRatio
-            // this decides the start position(mWaveShiftRatio for x, mWaterLevelRatio for y) of waves
-            mShaderMatrix.postTranslate(
-                    mWaveShiftRatio * getWidth(),
-                    (DEFAULT_WATER_LEVEL_RATIO - mWaterLevelRatio) * getHeight());
+            WaveGeometry.setShaderMatrix(mShaderMatrix, mWaveTexture, getWidth(), getHeight(),
+                    mModel.getWaveLengthRatio(), mModel.getAmplitudeRatio(),
+                    mModel.getWaveShiftRatio(), mModel.getWaterLevelRatio());
 
             // assign matrix to invalidate the shader
             mWaveShader.setLocalMatrix(mShaderMatrix);
 
+            if (mStaticPathsDirty) {
+                mStaticPathsDirty = false;
+                WaveTrace.begin(WaveTrace.STATIC_PATHS);
+                try {
+                    updateStaticPaths();
+                } finally {
+                    WaveTrace.end();
+                }
+            }
+            // border under the wave, as before the paths were cached
+            if (!mBorderPath.isEmpty()) {
+                canvas.drawPath(mBorderPath, mBorderPaint);
+            }
+
             float borderWidth = mBorderPaint == null ? 0f : mBorderPaint.getStrokeWidth();
             switch (mShapeType) {
                 case CIRCLE:
-                    if (borderWidth > 0) {
-                        canvas.drawCircle(getWidth() / 2f, getHeight() / 2f,
-                                (getWidth() - borderWidth) / 2f - 1f, mBorderPaint);
-                    }
                     float radius = getWidth() / 2f - borderWidth;
                     canvas.drawCircle(getWidth() / 2f, getHeight() / 2f, radius, mViewPaint);
                     break;
                 case SQUARE:
-                    if (borderWidth > 0) {
-                        canvas.drawRect(
-                                borderWidth / 2f,
-                                borderWidth / 2f,
-                                getWidth() - borderWidth / 2f - 0.5f,
-                                getHeight() - borderWidth / 2f - 0.5f,
-                                mBorderPaint);
-                    }
                     canvas.drawRect(borderWidth, borderWidth, getWidth() - borderWidth,
                             getHeight() - borderWidth, mViewPaint);
                     break;
                 case BOTTLE:
-// 80
-                    drawScalableBottle(canvas, 135, 260);
-                    //drawBottle(canvas);
-
-                    break;
                 case DROP:
-
-                    drawDrop(canvas);
-
-                    break;
                 case GLASS:
-                    drawGlass(canvas);
+                case CUSTOM:
+                    ShapeOutline outline = WaveGeometry.getShapeOutline(mShapeType, mCustomShape);
+                    if (outline == null) {
+                        break;
+                    }
+                    if (mShapeRendererDirty) {
+                        WaveTrace.begin(WaveTrace.BUILD_SHAPE);
+                        try {
+                            mShapeRenderer.setShape(mShapePaths.get(outline), getWidth(), getHeight());
+                        } finally {
+                            WaveTrace.end();
+                        }
+                        mShapeRendererDirty = false;
+                    }
+                    Path shape = mShapePaths.get(outline);
+                    mShapeRenderer.draw(canvas, shape, mViewPaint);
                     break;
             }
+
+            // bottle dots over the wave
+            if (!mDotPath.isEmpty()) {
+                canvas.drawPath(mDotPath, mDotPaint);
+            }
         } else {
             mViewPaint.setShader(null);
         }
     }
-
-    @Override
-    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-        Log.d("TAG_HEIGHT", String.valueOf(MeasureSpec.getSize(heightMeasureSpec)));
-        Log.d("TAG_WIDTH", String.valueOf(MeasureSpec.getSize(widthMeasureSpec)));
-    }
-
-    private void drawBottle(Canvas canvas) {
-        Path path = new Path();
-
-        mViewPaint.setStyle(Style.FILL_AND_STROKE);
-        path.moveTo(getWidth() / 2 + 50, getTop() + 20);
-        path.lineTo(getWidth() / 2 - 45, getTop() + 20); //1-2
-        path.quadTo(getWidth() / 2 - 160, getTop() + 265, getWidth() / 2 - 136, 320); //2-3
-        path.lineTo(getWidth() / 2 - 135, getTop() + 700); //3-7
-
-        path.quadTo(getWidth() / 2 - 110, getTop() + 762, getWidth() / 2 - 60, getTop() + 700); //7-8
-        path.quadTo(getWidth() / 2, getTop() + 762, getWidth() / 2 + 60, getTop() + 700); //8-9
-        path.quadTo(getWidth() / 2 + 110, getTop() + 762, getWidth() / 2 + 138, getTop() + 700); //9-10
-
-        path.lineTo(getWidth() / 2 + 138, getTop() + 320); //10-14
-        path.quadTo(getWidth() / 2 + 160, getTop() + 265, getWidth() / 2 + 50, getTop() + 25); //14-1
-        canvas.drawPath(path, mViewPaint);
-
-        canvas.drawCircle(getWidth() / 2 - 135, getTop() + 260, 5, mViewPaint);
-        canvas.drawCircle(getWidth() / 2 + 135, getTop() + 260, 5, mViewPaint);
-
-        canvas.drawPath(path, mViewPaint);
-    }
-
-    private void drawScalableBottle(Canvas canvas, int x, int y) {
-        Path path = new Path();
-
-        float halfWidth = getWidth() / 2;
-
-        float scalableWidthPlus45 = (float) (halfWidth / 0.9146341);
-        float scalableWidthMinus40 = (float) (halfWidth / 1.117403);
-        float scalableWidthMinus158 = (float) (halfWidth / 1.785714);
-        float scalableWidthMinus136 = (float) (halfWidth / 1.569038);
-        float scalableWidthPlus160 = (float) (halfWidth / 0.7009346);
-        float scalableWidthMinus60 = (float) (halfWidth / 1.190476);
-        float scalableWidthPlus60 = (float) (halfWidth / 0.862069);
-        float scalableWidthMinus110 = (float) (halfWidth / 1.415094);
-        float scalableWidthPlus110 = (float) (halfWidth / 0.7731959);
-        float scalableWidthPlus138 = (float) (halfWidth / 0.7309942);
-
-        float scalableHeight20 = (float) (getHeight() / 37.5);
-        float scalableHeight200 = (float) (getHeight() / 3.75);
-        float scalableHeight265 = (float) (getHeight() / 2.830186);
-        float scalableHeight320 = (float) (getHeight() / 2.34375);
-        float scalableHeight700 = (float) (getHeight() / 1.071429);
-        float scalableHeight762 = (float) (getHeight() / 0.984252);
-
-        mViewPaint.setStyle(Style.FILL_AND_STROKE);
-        path.moveTo(scalableWidthPlus45, scalableHeight20);
-        path.lineTo(scalableWidthMinus40, scalableHeight20); //1-2
-        path.quadTo(scalableWidthMinus158, scalableHeight265, scalableWidthMinus136, scalableHeight320); //2-3
-        path.lineTo(scalableWidthMinus136, scalableHeight700); //3-7
-
-        path.quadTo(scalableWidthMinus110, scalableHeight762, scalableWidthMinus60, scalableHeight700); //7-8
-        path.quadTo(getWidth() / 2, scalableHeight762, scalableWidthPlus60, scalableHeight700); //8-9
-        path.quadTo(scalableWidthPlus110, scalableHeight762, scalableWidthPlus138, scalableHeight700); //9-10
-
-        path.lineTo(scalableWidthPlus138, scalableHeight320); //10-14
-        path.quadTo(scalableWidthPlus160, scalableHeight200, scalableWidthPlus45, scalableHeight20); //14-1
-        canvas.drawPath(path, mViewPaint);
-
-        canvas.drawCircle(getWidth() / 2 - x, getTop() + y, 5, mViewPaint);
-        canvas.drawCircle(getWidth() / 2 + x, getTop() + y, 5, mViewPaint);
-    }
-
-    private void drawDrop(Canvas canvas) {
-        Path path = new Path();
-
-        float halfWidth = getWidth() / 2;
-
-        float scalableWidthMinus200 = (float) (halfWidth / 2.5);
-        float scalableWidthMinus5 = (float) (halfWidth / 1.013514);
-        float scalableWidthPlus5 = (float) (halfWidth / 0.9868421);
-        float scalableWidthMinus230 = (float) (halfWidth / 2.586207);
-        float scalableWidthMinus150 = (float) (halfWidth / 1.666667);
-        float scalableWidthPlus150 = (float) (halfWidth / 0.7009346);
-        float scalableWidthPlus225 = (float) (halfWidth / 0.625);
-
-        float scalableHeight20 = (float) (getHeight() / 37.5);
-        float scalableHeight40 = (float) (getHeight() / 18.75);
-        float scalableHeight400 = (float) (getHeight() / 1.875);
-        float scalableHeight475 = (float) (getHeight() / 1.578947);
-        float scalableHeight748 = (float) (getHeight() / 1.002674);
-        float scalableHeight700 = (float) (getHeight() / 1.071429);
-        float scalableHeight740 = (float) (getHeight() / 1.013514);
-
-        mViewPaint.setStyle(Style.FILL_AND_STROKE);
-        path.moveTo(halfWidth, scalableHeight20);
-        path.lineTo(scalableWidthMinus5, scalableHeight40);
-        path.lineTo(scalableWidthMinus200, scalableHeight400);
-        path.lineTo(scalableWidthMinus230, scalableHeight475);
-        path.quadTo(scalableWidthMinus150, scalableHeight748, halfWidth, scalableHeight700);
-        path.quadTo(scalableWidthPlus150, scalableHeight740, scalableWidthPlus225, scalableHeight475);
-        path.lineTo(scalableWidthPlus225, scalableHeight400);
-        path.lineTo(scalableWidthPlus5, scalableHeight40);
-        path.lineTo(halfWidth, 20);
-        canvas.drawPath(path, mViewPaint);
-    }
-
-    private void drawGlass(Canvas canvas) {
-        Path path = new Path();
-
-        float halfWidth = getWidth() / 2;
-
-        float scalableWidthMinus240 = (float) (halfWidth / 2.777778);
-        float scalableWidthPlus240 = (float) (halfWidth / 0.6097561);
-        float scalableWidthMinus193 = (float) (halfWidth / 2.06044);
-        float scalableWidthPlus193 = (float) (halfWidth / 0.6602113);
-
-        float scalableHeight80 = (float) (getHeight() / 9.375);
-        float scalableHeight700 = (float) (getHeight() / 1.111111);
-
-        mViewPaint.setStyle(Style.FILL_AND_STROKE);
-        path.moveTo(halfWidth, scalableHeight80);
-        path.lineTo(scalableWidthMinus240, scalableHeight80);
-        path.lineTo(scalableWidthMinus193-1, scalableHeight700);
-        path.lineTo(scalableWidthPlus193, scalableHeight700);
-        path.lineTo(scalableWidthPlus240, scalableHeight80);
-        path.lineTo(halfWidth, scalableHeight80);
-        canvas.drawPath(path, mViewPaint);
-    }
 }